@@ -0,0 +1,280 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Makes up Cranfield-like collections of any size, so the engines can be tested on far more than 1,400 documents.
+ * <p>
+ * The generator fits a model to the real Cranfield abstracts: Zipf's law for how often each word is used, Heaps' law
+ * for how fast new words show up as the collection grows, and the actual spread of abstract lengths. The most common
+ * words are the real Cranfield words in order. Once a bigger collection needs more words than Cranfield has, made-up
+ * ones are added after them.
+ * <p>
+ * Options are given as --name=value:
+ * <pre>
+ *   --source=FILE                The Cranfield collection to fit the model to. (cran-1.all.1400)
+ *   --documents=N                The number of documents to make. (10000)
+ *   --out=DIR                    Where to put the collection. (synthetic)
+ *   --format=cranfield|files|both
+ *                                cranfield writes a single cran-1.all.1400 file for Project Three. files writes a
+ *                                corpus folder with one N.txt per document for Projects Two and Four. (both)
+ *   --seed=N                     Random seed. (4130)
+ * </pre>
+ */
+public class CorpusGenerator {
+    // Abstracts get wrapped at about this many characters, like the real collection.
+    private static final int LINE_WIDTH = 70;
+
+    private final String[] words;
+    private final double exponent;
+    private final double heapsK;
+    private final double heapsBeta;
+    private final int[] lengths;
+
+    public static void main(String[] args) throws IOException {
+        HashMap<String, String> options = LoadGenerator.parseOptions(args);
+        File source = new File(options.getOrDefault("source", "cran-1.all.1400"));
+        int documents = Integer.parseInt(options.getOrDefault("documents", "10000"));
+        File out = new File(options.getOrDefault("out", "synthetic"));
+        String format = options.getOrDefault("format", "both");
+        long seed = Long.parseLong(options.getOrDefault("seed", "4130"));
+
+        CorpusGenerator generator = fit(source);
+        System.out.println(generator);
+        generator.generate(documents, out, !format.equals("files"), !format.equals("cranfield"), seed);
+        System.out.println("Wrote " + documents + " documents to " + out.getAbsolutePath());
+    }
+
+    private CorpusGenerator(String[] words, double exponent, double heapsK, double heapsBeta, int[] lengths) {
+        this.words = words;
+        this.exponent = exponent;
+        this.heapsK = heapsK;
+        this.heapsBeta = heapsBeta;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Fits the generator's model to a Cranfield-formatted collection.
+     * @param source The collection.
+     * @return A generator that makes collections like it.
+     * @throws IOException If there's a problem reading the collection.
+     */
+    static CorpusGenerator fit(File source) throws IOException {
+        // Tokenize every abstract the same way ProjectThree does, counting words and recording how many distinct
+        // words we've seen as the token count grows.
+        Pattern wordPattern = Pattern.compile("[a-zA-Z]+");
+        HashMap<String, Integer> counts = new HashMap<>();
+        ArrayList<Integer> lengths = new ArrayList<>();
+        ArrayList<double[]> growth = new ArrayList<>();
+        long tokens = 0;
+        int length = -1;
+
+        BufferedReader br = new BufferedReader(new FileReader(source));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.startsWith(".")) {
+                if (length >= 0)
+                    lengths.add(length);
+                length = line.startsWith(".W") ? 0 : -1;
+                continue;
+            }
+            if (length < 0)
+                continue;
+
+            Matcher matcher = wordPattern.matcher(line);
+            while (matcher.find()) {
+                counts.merge(matcher.group().toLowerCase(), 1, Integer::sum);
+                length++;
+                tokens++;
+                if (Long.bitCount(tokens) == 1 || tokens % 4096 == 0)
+                    growth.add(new double[]{Math.log(tokens), Math.log(counts.size())});
+            }
+        }
+        br.close();
+        if (length >= 0)
+            lengths.add(length);
+
+        // Rank the words from most to least common.
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(counts.entrySet());
+        ranked.sort((a, b) -> b.getValue().equals(a.getValue()) ? a.getKey().compareTo(b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+        String[] words = new String[ranked.size()];
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            words[rank] = ranked.get(rank).getKey();
+        }
+
+        // Most words are rare, so fitting every rank would let the tail swamp the head of the curve. Instead, sample
+        // ranks evenly on a log scale. Words that only show up once flatten out the end of the curve, so they're
+        // left out of the fit.
+        ArrayList<double[]> zipf = new ArrayList<>();
+        for (double rank = 1; rank <= ranked.size(); rank = Math.max(rank + 1, rank * 1.1)) {
+            int count = ranked.get((int) rank - 1).getValue();
+            if (count > 1)
+                zipf.add(new double[]{Math.log((int) rank), Math.log(count)});
+        }
+
+        // Zipf: log(frequency) falls off linearly with log(rank), with slope -s.
+        double exponent = -slope(zipf);
+
+        // Heaps: log(vocabulary) grows linearly with log(tokens), with slope beta.
+        double heapsBeta = slope(growth);
+        double heapsK = Math.exp(intercept(growth, heapsBeta));
+
+        int[] lengthArray = new int[lengths.size()];
+        for (int i = 0; i < lengthArray.length; i++) {
+            lengthArray[i] = Math.max(1, lengths.get(i));
+        }
+        return new CorpusGenerator(words, exponent, heapsK, heapsBeta, lengthArray);
+    }
+
+    /**
+     * Writes out a collection.
+     * @param documents The number of documents to make.
+     * @param out The folder to write to.
+     * @param cranfield Whether to write a cran-1.all.1400 file.
+     * @param files Whether to write a corpus folder with a file for each document.
+     * @param seed The random seed.
+     * @throws IOException If there's a problem writing the collection.
+     */
+    void generate(int documents, File out, boolean cranfield, boolean files, long seed) throws IOException {
+        File corpus = new File(out, "corpus");
+        boolean temp = out.exists() || out.mkdirs();
+        if (files)
+            temp = corpus.exists() || corpus.mkdirs();
+
+        // Size the vocabulary with Heaps' law for the number of tokens we expect to write, then build the Zipf
+        // distribution over it as a cumulative table we can binary search.
+        double meanLength = Arrays.stream(lengths).average().orElse(1);
+        int vocabulary = vocabularySize((long) (documents * meanLength));
+        double[] cumulative = new double[vocabulary];
+        double total = 0;
+        for (int rank = 0; rank < vocabulary; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+
+        Random random = new Random(seed);
+        BufferedWriter collection = cranfield
+                ? new BufferedWriter(new FileWriter(new File(out, "cran-1.all.1400"))) : null;
+        for (int doc = 1; doc <= documents; doc++) {
+            // Pick an abstract length from the real collection, then fill it with words.
+            int length = lengths[random.nextInt(lengths.length)];
+            StringBuilder text = new StringBuilder();
+            int lineLength = 0;
+            for (int i = 0; i < length; i++) {
+                String word = word(sample(cumulative, random.nextDouble() * total));
+                if (lineLength > 0 && lineLength + word.length() + 1 > LINE_WIDTH) {
+                    text.append("\n");
+                    lineLength = 0;
+                } else if (lineLength > 0) {
+                    text.append(" ");
+                    lineLength++;
+                }
+                text.append(word);
+                lineLength += word.length();
+            }
+            text.append(" .\n");
+
+            if (collection != null) {
+                collection.write(".I " + doc + "\n.T\nsynthetic document " + doc + "\n.A\n.B\n.W\n");
+                collection.write(text.toString());
+            }
+            if (files) {
+                BufferedWriter file = new BufferedWriter(new FileWriter(new File(corpus, doc + ".txt")));
+                file.write(text.toString());
+                file.close();
+            }
+        }
+        if (collection != null)
+            collection.close();
+    }
+
+    /**
+     * Estimates how many distinct words a collection with a given number of tokens would have, using Heaps' law.
+     * It's never less than the real vocabulary, so every real word can show up.
+     * @param tokens The number of tokens.
+     * @return The vocabulary size.
+     */
+    int vocabularySize(long tokens) {
+        return (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(words.length, Math.round(heapsK * Math.pow(tokens, heapsBeta))));
+    }
+
+    /**
+     * Gets the word at a rank. Ranks past the real vocabulary get made-up words, which all start with "zq" so they
+     * can't clash with a real one.
+     * @param rank The rank, starting at 0 for the most common word.
+     * @return The word.
+     */
+    private String word(int rank) {
+        if (rank < words.length)
+            return words[rank];
+        StringBuilder word = new StringBuilder("zq");
+        int value = rank - words.length;
+        do {
+            word.append((char) ('a' + value % 26));
+            value /= 26;
+        } while (value > 0);
+        return word.toString();
+    }
+
+    /**
+     * Finds the first rank whose cumulative weight reaches a value.
+     */
+    private static int sample(double[] cumulative, double value) {
+        int index = Arrays.binarySearch(cumulative, value);
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Least-squares slope of a set of (x, y) points.
+     */
+    private static double slope(List<double[]> points) {
+        double meanX = 0, meanY = 0;
+        for (double[] point : points) {
+            meanX += point[0];
+            meanY += point[1];
+        }
+        meanX /= points.size();
+        meanY /= points.size();
+
+        double covariance = 0, variance = 0;
+        for (double[] point : points) {
+            covariance += (point[0] - meanX) * (point[1] - meanY);
+            variance += (point[0] - meanX) * (point[0] - meanX);
+        }
+        return covariance / variance;
+    }
+
+    /**
+     * Least-squares intercept of a set of (x, y) points, given their slope.
+     */
+    private static double intercept(List<double[]> points, double slope) {
+        double meanX = 0, meanY = 0;
+        for (double[] point : points) {
+            meanX += point[0];
+            meanY += point[1];
+        }
+        return (meanY - slope * meanX) / points.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Zipf exponent %.3f, Heaps K %.2f beta %.3f, %d real words, %d abstracts",
+                exponent, heapsK, heapsBeta, words.length, lengths.length);
+    }
+}
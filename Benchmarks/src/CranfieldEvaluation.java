@@ -0,0 +1,70 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scores ranked results against the Cranfield relevance judgements in cranqrel.
+ * <p>
+ * cranqrel numbers the queries 1 to 225 in the order they appear in cran.qry, not by their .I numbers, so results
+ * have to be given in that same order. Document names are the "100.txt" style names ProjectThree uses.
+ */
+class CranfieldEvaluation {
+    // Query number mapped to the numbers of its relevant documents. Relevance grades are ignored.
+    private final HashMap<Integer, Set<String>> relevant = new HashMap<>();
+
+    /**
+     * Reads the relevance judgements.
+     * @param qrels The cranqrel file.
+     * @throws IOException If there's a problem reading the file.
+     */
+    CranfieldEvaluation(File qrels) throws IOException {
+        BufferedReader br = new BufferedReader(new FileReader(qrels));
+        String line;
+        while ((line = br.readLine()) != null) {
+            String[] values = line.trim().split("\\s+");
+            if (values.length >= 2)
+                relevant.computeIfAbsent(Integer.parseInt(values[0]), key -> new HashSet<>()).add(values[1]);
+        }
+        br.close();
+    }
+
+    /**
+     * Calculates the mean average precision over the top 10 results of each query. Each query's average precision
+     * is the sum of the precision at every rank where a relevant document shows up, divided by the number of
+     * relevant documents it could have found in 10 results.
+     * @param results Each query's ranked document names, in cran.qry order.
+     * @return The MAP over every query that has relevance judgements.
+     */
+    double meanAveragePrecision(List<List<String>> results) {
+        double total = 0;
+        int queries = 0;
+        for (int i = 0; i < results.size(); i++) {
+            Set<String> relevantDocs = relevant.get(i + 1);
+            if (relevantDocs == null)
+                continue;
+
+            int found = 0;
+            double precisionSum = 0;
+            List<String> ranking = results.get(i);
+            for (int rank = 0; rank < Math.min(10, ranking.size()); rank++) {
+                String name = ranking.get(rank);
+                String docNumber = name.contains(".") ? name.substring(0, name.indexOf('.')) : name;
+                if (relevantDocs.contains(docNumber)) {
+                    found++;
+                    precisionSum += (double) found / (rank + 1);
+                }
+            }
+            total += precisionSum / Math.min(10, relevantDocs.size());
+            queries++;
+        }
+        return queries == 0 ? 0 : total / queries;
+    }
+}
@@ -0,0 +1,234 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a query log against one of the search engines under concurrent load, and reports how latency and
+ * throughput change as more threads are added.
+ * <p>
+ * Options are given as --name=value:
+ * <pre>
+ *   --engine=two|three|four   Which project's engine to load. (three)
+ *   --data=DIR                The project folder holding the engine's documents. (.)
+ *   --log=cran[:FILE]         Replay the Cranfield queries. FILE defaults to cran.qry in the data folder.
+ *   --log=file:FILE           Replay a plain log with one query per line.
+ *   --log=synthetic[:N]       Replay N queries made up from the engine's term dictionary. (1000)
+ *   --mode=closed|open        Closed loop: each thread sends its next query as soon as the last one comes back.
+ *                             Open loop: queries are sent at a fixed rate whether or not the engine keeps up. (closed)
+ *   --rate=QPS                Queries per second to send in open loop mode. (100)
+ *   --threads=1,2,4,8         The thread counts to measure, one run each.
+ *   --requests=N              Queries to measure for each thread count. (2000)
+ *   --warmup=N                Queries to run before measuring, so the JIT has a chance to kick in. (500)
+ *   --seed=N                  Random seed for synthetic logs. (4130)
+ *   --csv=FILE                Where to write the results. (load-{engine}-{mode}.csv)
+ *   --shards=N                Search Project Three with a sharded index split N ways.
+ *   --impact-tier=N           Search Project Three with impact-sorted postings and a high tier of N. (50)
+ *   --impact-floor=X          Drop impact-sorted postings worth less than X. (0)
+ *   --mapped=FILE             Search Project Two or Three from a memory-mapped index file, building it if needed.
+ *   --quantized=8|16          Search Project Three with 8 or 16-bit quantized weights.
+ *   --kernel=best|scalar|vector
+ *                             The kernel quantized searches add up scores with. (best)
+ * </pre>
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> options = parseOptions(args);
+        String engineName = options.getOrDefault("engine", "three");
+        File data = new File(options.getOrDefault("data", "."));
+        String logSpec = options.getOrDefault("log", "cran");
+        String mode = options.getOrDefault("mode", "closed");
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "2000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "500"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "4130"));
+        File csv = new File(options.getOrDefault("csv", "load-" + engineName + "-" + mode + ".csv"));
+
+        if (!mode.equals("closed") && !mode.equals("open"))
+            throw new IllegalArgumentException("Unknown mode \"" + mode + "\". Use closed or open.");
+
+        String[] threadValues = options.getOrDefault("threads", "1,2,4,8").split(",");
+        int[] threadCounts = new int[threadValues.length];
+        for (int i = 0; i < threadValues.length; i++) {
+            threadCounts[i] = Integer.parseInt(threadValues[i].trim());
+        }
+
+        // Build the engine's index before we start timing anything.
+        SearchEngine engine = SearchEngine.create(engineName, data, options);
+        System.out.println("Building the index for engine " + engine.name() + "...");
+        long buildStart = System.nanoTime();
+        engine.build();
+        System.out.printf("Index built in %.1f ms.%n", (System.nanoTime() - buildStart) / 1e6);
+
+        List<String> queries = loadQueries(logSpec, data, engine, seed);
+        System.out.println("Replaying " + queries.size() + " queries from " + logSpec + ".");
+
+        // Warm up on a single thread. The results are thrown away.
+        runClosedLoop(engine, queries, 1, warmup, new LatencyHistogram(), new AtomicLong());
+
+        FileWriter fw = new FileWriter(csv);
+        fw.write("engine,mode,threads,target_qps,requests,errors,duration_s,throughput_qps,"
+                + "mean_ms,p50_ms,p95_ms,p99_ms,p999_ms,max_ms\n");
+
+        System.out.printf("%8s %10s %10s %10s %10s %10s %10s %10s%n",
+                "threads", "qps", "mean ms", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms");
+        for (int threads : threadCounts) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            AtomicLong errors = new AtomicLong();
+
+            long start = System.nanoTime();
+            if (mode.equals("closed"))
+                runClosedLoop(engine, queries, threads, requests, histogram, errors);
+            else
+                runOpenLoop(engine, queries, threads, requests, rate, histogram, errors);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double throughput = histogram.count() / seconds;
+
+            System.out.printf("%8d %10.1f %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    threads, throughput, histogram.mean() / 1e6, millis(histogram.percentile(50)),
+                    millis(histogram.percentile(95)), millis(histogram.percentile(99)),
+                    millis(histogram.percentile(99.9)), millis(histogram.max()));
+            fw.write(String.format(Locale.ROOT, "%s,%s,%d,%s,%d,%d,%.3f,%.2f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f%n",
+                    engine.name(), mode, threads, mode.equals("open") ? String.valueOf(rate) : "",
+                    histogram.count(), errors.get(), seconds, throughput, histogram.mean() / 1e6,
+                    millis(histogram.percentile(50)), millis(histogram.percentile(95)),
+                    millis(histogram.percentile(99)), millis(histogram.percentile(99.9)),
+                    millis(histogram.max())));
+        }
+        fw.close();
+        engine.close();
+
+        System.out.println("Results written to " + csv.getAbsolutePath());
+    }
+
+    /**
+     * Runs the queries with a fixed number of threads, each sending its next query as soon as the last one finishes.
+     * @param engine The engine to search.
+     * @param queries The query log. It's replayed from the start, wrapping around if there are more requests.
+     * @param threads The number of threads sending queries.
+     * @param requests The total number of queries to send.
+     * @param histogram Where to record each query's latency.
+     * @param errors Counts the queries that threw an exception.
+     * @throws InterruptedException If we're interrupted while waiting for the threads to finish.
+     */
+    static void runClosedLoop(SearchEngine engine, List<String> queries, int threads, int requests,
+                              LatencyHistogram histogram, AtomicLong errors) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    String query = queries.get(i % queries.size());
+                    long start = System.nanoTime();
+                    try {
+                        engine.search(query);
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    histogram.record(System.nanoTime() - start);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sends the queries at a fixed rate to a pool of threads, no matter how quickly the engine answers them.
+     * Latency is measured from when each query was supposed to be sent, so time spent queued behind a slow query
+     * is counted instead of hidden.
+     * @param engine The engine to search.
+     * @param queries The query log. It's replayed from the start, wrapping around if there are more requests.
+     * @param threads The number of threads answering queries.
+     * @param requests The total number of queries to send.
+     * @param rate The number of queries to send per second.
+     * @param histogram Where to record each query's latency.
+     * @param errors Counts the queries that threw an exception.
+     * @throws InterruptedException If we're interrupted while waiting for the threads to finish.
+     */
+    static void runOpenLoop(SearchEngine engine, List<String> queries, int threads, int requests, double rate,
+                            LatencyHistogram histogram, AtomicLong errors) throws InterruptedException {
+        long interval = (long) (1e9 / rate);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long intended = start + i * interval;
+
+            // Wait until it's time to send the next query.
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            String query = queries.get(i % queries.size());
+            pool.execute(() -> {
+                try {
+                    engine.search(query);
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+                histogram.record(System.nanoTime() - intended);
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Loads the query log to replay.
+     * @param logSpec The --log option.
+     * @param data The engine's data folder.
+     * @param engine The engine, used for its term dictionary when making synthetic queries.
+     * @param seed The random seed for synthetic queries.
+     * @return The queries.
+     * @throws IOException If there's a problem reading the log.
+     */
+    private static List<String> loadQueries(String logSpec, File data, SearchEngine engine, long seed)
+            throws IOException {
+        String kind = logSpec.contains(":") ? logSpec.substring(0, logSpec.indexOf(':')) : logSpec;
+        String value = logSpec.contains(":") ? logSpec.substring(logSpec.indexOf(':') + 1) : null;
+        switch (kind) {
+            case "cran":
+                return QueryLog.readCranfield(value != null ? new File(value) : new File(data, "cran.qry"));
+            case "file":
+                return QueryLog.readLines(new File(value));
+            case "synthetic":
+                int count = value != null ? Integer.parseInt(value) : 1000;
+                return QueryLog.synthetic(engine.vocabulary(), count, seed);
+            default:
+                throw new IllegalArgumentException("Unknown log \"" + logSpec + "\".");
+        }
+    }
+
+    /**
+     * Splits up --name=value arguments.
+     * @param args The command line arguments.
+     * @return Each option's value, keyed by its name.
+     */
+    static HashMap<String, String> parseOptions(String[] args) {
+        HashMap<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Options should look like --name=value, not \"" + arg + "\".");
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
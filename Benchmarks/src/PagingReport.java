@@ -0,0 +1,227 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares two ways of getting a deep page of results on the Cranfield collection. Paging with an offset searches
+ * for the top page * k documents and keeps the last k. Paging with a cursor starts after the last document of the
+ * page before, so it only ever keeps k. Both are tried on Project Three's index and on Lucene at increasing depths,
+ * and the agree column checks that they found the same page.
+ * <p>
+ * The cursor for each page is worked out before timing starts, since a caller paging through would already have it
+ * from the page before.
+ * <p>
+ * Options are given as --name=value:
+ * <pre>
+ *   --data=DIR          The Project 3 folder, holding cran-1.all.1400 and cran.qry. (.)
+ *   --pages=1,10,50     Which pages to time.
+ *   --k=N               Documents per page. (10)
+ *   --repeat=N          How many times to run the query set for timing. (5)
+ *   --csv=FILE          Where to write the results. (paging.csv)
+ * </pre>
+ */
+public class PagingReport {
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> options = LoadGenerator.parseOptions(args);
+        File data = new File(options.getOrDefault("data", "."));
+        String[] pages = options.getOrDefault("pages", "1,5,10,25,50").split(",");
+        int k = Integer.parseInt(options.getOrDefault("k", "10"));
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "5"));
+        File csv = new File(options.getOrDefault("csv", "paging.csv"));
+
+        // buildIndex splits the collection into a file per document, which is what Project Four indexes. The files
+        // are only needed until both indexes are built.
+        Path corpusFolder = Files.createTempDirectory("corpus");
+        Path indexPath = Files.createTempDirectory("tempIndex");
+        Analyzer analyzer = new StandardAnalyzer();
+        Directory directory;
+        try {
+            ProjectThree.buildIndex(new File(data, "cran-1.all.1400"), corpusFolder.toFile());
+            directory = Main.buildIndex(corpusFolder.toFile(), indexPath, analyzer);
+        } finally {
+            IOUtils.rm(corpusFolder);
+        }
+        List<String> queryTexts = QueryLog.readCranfield(new File(data, "cran.qry"));
+        List<List<String>> queries = new ArrayList<>();
+        for (String query : queryTexts) {
+            queries.add(ProjectThree.normalizeIntoArray(query));
+        }
+        SearchIndex index = new ShardedIndex(ProjectThree.getDocumentTermFrequencies(), 1);
+
+        DirectoryReader ireader = DirectoryReader.open(directory);
+        IndexSearcher isearcher = new IndexSearcher(ireader);
+        List<String> luceneQueries = new ArrayList<>();
+        for (String query : queryTexts) {
+            luceneQueries.add(QueryParser.escape(query));
+        }
+
+        FileWriter fw = new FileWriter(csv);
+        fw.write("engine,page,offset_mean_ms,offset_p99_ms,cursor_mean_ms,cursor_p99_ms,speedup,agree\n");
+        System.out.printf("%-8s %6s %12s %12s %12s %12s %8s %6s%n",
+                "engine", "page", "offset ms", "offset p99", "cursor ms", "cursor p99", "speedup", "agree");
+
+        for (String pageText : pages) {
+            int page = Integer.parseInt(pageText.trim());
+
+            // Project Three.
+            List<ScoredDocument> afters = new ArrayList<>();
+            for (List<String> query : queries) {
+                afters.add(lastOfPage(index, query, page - 1, k));
+            }
+            LatencyHistogram offset = new LatencyHistogram();
+            LatencyHistogram cursor = new LatencyHistogram();
+            int agree = 0;
+            for (int pass = 0; pass <= repeat; pass++) {
+                // The first pass only warms up the JIT.
+                LatencyHistogram offsetTimes = pass == 0 ? new LatencyHistogram() : offset;
+                LatencyHistogram cursorTimes = pass == 0 ? new LatencyHistogram() : cursor;
+                agree = 0;
+                for (int q = 0; q < queries.size(); q++) {
+                    long start = System.nanoTime();
+                    List<ScoredDocument> top = index.search(queries.get(q), page * k);
+                    List<ScoredDocument> byOffset = top.subList(Math.min(top.size(), (page - 1) * k), top.size());
+                    offsetTimes.record(System.nanoTime() - start);
+
+                    // A query with too few results to reach this page gets an empty one either way.
+                    ScoredDocument after = afters.get(q);
+                    start = System.nanoTime();
+                    List<ScoredDocument> byCursor = page > 1 && after == null ? List.of()
+                            : index.searchAfter(queries.get(q), after, k);
+                    cursorTimes.record(System.nanoTime() - start);
+
+                    if (sameNames(byOffset, byCursor))
+                        agree++;
+                }
+            }
+            report(fw, "three", page, offset, cursor, (double) agree / queries.size());
+
+            // Lucene.
+            List<ScoreDoc> luceneAfters = new ArrayList<>();
+            for (String query : luceneQueries) {
+                ScoreDoc[] previous = page == 1 ? new ScoreDoc[0]
+                        : Main.search(isearcher, analyzer, query, (page - 1) * k);
+                luceneAfters.add(previous.length == 0 || previous.length < (page - 1) * k
+                        ? null : previous[previous.length - 1]);
+            }
+            offset = new LatencyHistogram();
+            cursor = new LatencyHistogram();
+            for (int pass = 0; pass <= repeat; pass++) {
+                LatencyHistogram offsetTimes = pass == 0 ? new LatencyHistogram() : offset;
+                LatencyHistogram cursorTimes = pass == 0 ? new LatencyHistogram() : cursor;
+                agree = 0;
+                for (int q = 0; q < luceneQueries.size(); q++) {
+                    long start = System.nanoTime();
+                    ScoreDoc[] top = Main.search(isearcher, analyzer, luceneQueries.get(q), page * k);
+                    ScoreDoc[] byOffset = Arrays.copyOfRange(top, Math.min(top.length, (page - 1) * k), top.length);
+                    offsetTimes.record(System.nanoTime() - start);
+
+                    ScoreDoc after = luceneAfters.get(q);
+                    start = System.nanoTime();
+                    ScoreDoc[] byCursor = page > 1 && after == null ? new ScoreDoc[0]
+                            : Main.searchAfter(isearcher, analyzer, luceneQueries.get(q), after, k).scoreDocs;
+                    cursorTimes.record(System.nanoTime() - start);
+
+                    if (sameDocs(byOffset, byCursor))
+                        agree++;
+                }
+            }
+            report(fw, "four", page, offset, cursor, (double) agree / luceneQueries.size());
+        }
+        fw.close();
+        ireader.close();
+        directory.close();
+        IOUtils.rm(indexPath);
+        System.out.println("Results written to " + csv.getAbsolutePath());
+    }
+
+    /**
+     * Walks a query's results with the cursor up to a page, the way a caller paging through would.
+     * @param index The index.
+     * @param query The normalized query.
+     * @param page The page to stop at, counting from 1, or 0 for none.
+     * @param k Documents per page.
+     * @return The last document on the page, or null if the page is 0 or the query runs out of results before it.
+     */
+    private static ScoredDocument lastOfPage(SearchIndex index, List<String> query, int page, int k) {
+        ScoredDocument after = null;
+        for (int p = 0; p < page; p++) {
+            List<ScoredDocument> documents = index.searchAfter(query, after, k);
+            if (documents.size() < k)
+                return null;
+            after = documents.get(documents.size() - 1);
+        }
+        return after;
+    }
+
+    /**
+     * Checks whether two pages hold the same documents in the same order.
+     * @param a One page.
+     * @param b The other page.
+     * @return True if they match.
+     */
+    private static boolean sameNames(List<ScoredDocument> a, List<ScoredDocument> b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).name.equals(b.get(i).name))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether two pages of Lucene hits hold the same documents in the same order.
+     * @param a One page.
+     * @param b The other page.
+     * @return True if they match.
+     */
+    private static boolean sameDocs(ScoreDoc[] a, ScoreDoc[] b) {
+        if (a.length != b.length)
+            return false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i].doc != b[i].doc)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Prints one line of the table, and writes it to the CSV.
+     * @param fw The CSV file.
+     * @param engine "three" or "four".
+     * @param page The page.
+     * @param offset Times for paging with an offset.
+     * @param cursor Times for paging with a cursor.
+     * @param agree The fraction of queries where both found the same page.
+     * @throws Exception If there's a problem writing the CSV.
+     */
+    private static void report(FileWriter fw, String engine, int page, LatencyHistogram offset,
+                               LatencyHistogram cursor, double agree) throws Exception {
+        double speedup = offset.mean() / cursor.mean();
+        System.out.printf(Locale.ROOT, "%-8s %6d %12.4f %12.4f %12.4f %12.4f %8.2f %6.3f%n", engine, page,
+                offset.mean() / 1e6, offset.percentile(99) / 1e6, cursor.mean() / 1e6, cursor.percentile(99) / 1e6,
+                speedup, agree);
+        fw.write(String.format(Locale.ROOT, "%s,%d,%.5f,%.5f,%.5f,%.5f,%.3f,%.4f%n", engine, page,
+                offset.mean() / 1e6, offset.percentile(99) / 1e6, cursor.mean() / 1e6, cursor.percentile(99) / 1e6,
+                speedup, agree));
+    }
+}
@@ -0,0 +1,172 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import org.apache.lucene.util.IOUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures what impact-ordered, tiered postings cost and save on the Cranfield collection. Every combination of high
+ * tier size and static pruning floor is compared against an exhaustive search on latency, Cranfield MAP, and how
+ * many of the exhaustive top 10 it still finds, along with the fraction of query terms whose tails were skipped.
+ * <p>
+ * Options are given as --name=value:
+ * <pre>
+ *   --data=DIR          The Project 3 folder, holding cran-1.all.1400, cran.qry, and cranqrel. (.)
+ *   --tiers=10,25,50    High tier sizes to try.
+ *   --floors=0,1,2      Impact floors to try.
+ *   --repeat=N          How many times to run the query set for timing. (5)
+ *   --csv=FILE          Where to write the results. (pruning.csv)
+ * </pre>
+ */
+public class PruningReport {
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> options = LoadGenerator.parseOptions(args);
+        File data = new File(options.getOrDefault("data", "."));
+        String[] tiers = options.getOrDefault("tiers", "10,25,50,100").split(",");
+        String[] floors = options.getOrDefault("floors", "0,1,2,3,4").split(",");
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "5"));
+        File csv = new File(options.getOrDefault("csv", "pruning.csv"));
+
+        // The extracted documents are only needed while the index is built.
+        Path corpusFolder = Files.createTempDirectory("corpus");
+        try {
+            ProjectThree.buildIndex(new File(data, "cran-1.all.1400"), corpusFolder.toFile());
+        } finally {
+            IOUtils.rm(corpusFolder);
+        }
+        List<List<String>> queries = new ArrayList<>();
+        for (String query : QueryLog.readCranfield(new File(data, "cran.qry"))) {
+            queries.add(ProjectThree.normalizeIntoArray(query));
+        }
+        CranfieldEvaluation evaluation = new CranfieldEvaluation(new File(data, "cranqrel"));
+
+        // The exhaustive search is what every pruned configuration gets compared to.
+        SearchIndex exhaustive = new ShardedIndex(ProjectThree.getDocumentTermFrequencies(), 1);
+        Run baseline = Run.measure(exhaustive::search, queries, repeat);
+
+        FileWriter fw = new FileWriter(csv);
+        fw.write("index,tier,floor,postings,pruned,mean_ms,p50_ms,p99_ms,map,overlap_at_10,tails_skipped\n");
+        System.out.printf("%-28s %10s %10s %10s %10s %8s %8s %8s%n",
+                "index", "postings", "mean ms", "p50 ms", "p99 ms", "MAP", "overlap", "skipped");
+        report(fw, "exhaustive", "", "", -1, 0, 0, baseline, baseline, evaluation);
+
+        for (String tier : tiers) {
+            for (String floor : floors) {
+                ImpactIndex index = new ImpactIndex(ProjectThree.getDocumentTermFrequencies(),
+                        Integer.parseInt(tier.trim()), Double.parseDouble(floor.trim()));
+                Run run = Run.measure(index::search, queries, repeat);
+                long tails = index.tailsRead() + index.tailsSkipped();
+                double skipped = tails == 0 ? 0 : (double) index.tailsSkipped() / tails;
+                report(fw, index.toString(), tier.trim(), floor.trim(), index.postingCount(), index.prunedCount(),
+                        skipped, run, baseline, evaluation);
+            }
+        }
+        fw.close();
+        System.out.println("Results written to " + csv.getAbsolutePath());
+    }
+
+    /**
+     * Prints one configuration's line of the table, and writes it to the CSV.
+     * @param fw The CSV file.
+     * @param label The configuration's name.
+     * @param tier The high tier size, or blank for the exhaustive search.
+     * @param floor The impact floor, or blank for the exhaustive search.
+     * @param postings The number of postings in the index, or -1 if it isn't known.
+     * @param pruned The number of postings dropped by the floor.
+     * @param skipped The fraction of query terms whose tails were never read.
+     * @param run The configuration's run.
+     * @param baseline The exhaustive search's run.
+     * @param evaluation The Cranfield relevance judgements.
+     * @throws Exception If there's a problem writing the CSV.
+     */
+    private static void report(FileWriter fw, String label, String tier, String floor, long postings, long pruned,
+                               double skipped, Run run, Run baseline, CranfieldEvaluation evaluation) throws Exception {
+        double map = evaluation.meanAveragePrecision(run.results);
+        double overlap = run.overlapWith(baseline);
+        System.out.printf("%-28s %10s %10.3f %10.3f %10.3f %8.4f %8.3f %8.3f%n", label,
+                postings < 0 ? "" : String.valueOf(postings), run.latency.mean() / 1e6,
+                run.latency.percentile(50) / 1e6, run.latency.percentile(99) / 1e6, map, overlap, skipped);
+        fw.write(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%.4f,%.4f,%.4f,%.5f,%.4f,%.4f%n", label, tier, floor,
+                postings < 0 ? "" : String.valueOf(postings), pruned, run.latency.mean() / 1e6,
+                run.latency.percentile(50) / 1e6, run.latency.percentile(99) / 1e6, map, overlap, skipped));
+    }
+
+    /**
+     * The latency and results of running the Cranfield queries against one index.
+     */
+    static class Run {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final List<List<String>> results = new ArrayList<>();
+
+        /**
+         * Anything that can find the top k documents for a query, usually a SearchIndex's search.
+         */
+        interface Search {
+            List<ScoredDocument> search(List<String> tokens, int k);
+        }
+
+        /**
+         * Runs the queries once to warm up, then the given number of times while timing each search. The results
+         * kept are from the last pass.
+         * @param index The search to time.
+         * @param queries The normalized queries, in cran.qry order.
+         * @param repeat How many timed passes to make.
+         * @return The run.
+         */
+        static Run measure(Search index, List<List<String>> queries, int repeat) {
+            Run run = new Run();
+            for (List<String> query : queries) {
+                index.search(query, 10);
+            }
+            for (int pass = 0; pass < repeat; pass++) {
+                run.results.clear();
+                for (List<String> query : queries) {
+                    long start = System.nanoTime();
+                    List<ScoredDocument> documents = index.search(query, 10);
+                    run.latency.record(System.nanoTime() - start);
+
+                    List<String> names = new ArrayList<>();
+                    for (ScoredDocument document : documents) {
+                        names.add(document.name);
+                    }
+                    run.results.add(names);
+                }
+            }
+            return run;
+        }
+
+        /**
+         * Works out what fraction of another run's top 10 documents this run also found, averaged over the queries.
+         * @param other The run to compare against.
+         * @return The average overlap, from 0 to 1.
+         */
+        double overlapWith(Run other) {
+            double total = 0;
+            int queries = 0;
+            for (int i = 0; i < results.size(); i++) {
+                List<String> expected = other.results.get(i);
+                if (expected.isEmpty())
+                    continue;
+                HashSet<String> found = new HashSet<>(results.get(i));
+                int shared = 0;
+                for (String name : expected) {
+                    if (found.contains(name))
+                        shared++;
+                }
+                total += (double) shared / expected.size();
+                queries++;
+            }
+            return queries == 0 ? 1 : total / queries;
+        }
+    }
+}
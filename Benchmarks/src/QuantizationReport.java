@@ -0,0 +1,174 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import org.apache.lucene.util.IOUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compares searching quantized postings against the double-precision postings ShardedIndex uses, on heap use,
+ * queries per second, Cranfield MAP, and how many of the double-precision top 10 each one still finds.
+ * <p>
+ * ProjectThree's own search, which scans every document's HashMap of Terms, is timed too. Its heap is everything
+ * buildIndex holds on to, since that's what it searches. It's only there for speed and heap: buildIndex only sets
+ * tfIdf on the first copy of each Term it sees, so the scan rates most postings as 0 and its MAP isn't comparable.
+ * <p>
+ * Every combination of 8 and 16-bit impacts with the scalar and vector kernels is tried. The vector kernel only shows
+ * up if Project 3's vector folder was compiled and the JVM was started with --add-modules jdk.incubator.vector.
+ * <p>
+ * Options are given as --name=value:
+ * <pre>
+ *   --data=DIR          The folder holding the collection, queries, and relevance judgements. (.)
+ *   --corpus=FILE       The collection. (DIR/cran-1.all.1400)
+ *   --queries=FILE      The queries, in cran.qry format. (DIR/cran.qry)
+ *   --qrels=FILE        The relevance judgements. MAP is left out if the file isn't there. (DIR/cranqrel)
+ *   --repeat=N          How many times to run the query set for timing. (20)
+ *   --csv=FILE          Where to write the results. (quantization.csv)
+ * </pre>
+ */
+public class QuantizationReport {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> options = LoadGenerator.parseOptions(args);
+        File data = new File(options.getOrDefault("data", "."));
+        File corpus = new File(options.getOrDefault("corpus", new File(data, "cran-1.all.1400").getPath()));
+        File queryFile = new File(options.getOrDefault("queries", new File(data, "cran.qry").getPath()));
+        File qrels = new File(options.getOrDefault("qrels", new File(data, "cranqrel").getPath()));
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "20"));
+        File csv = new File(options.getOrDefault("csv", "quantization.csv"));
+
+        // The extracted documents are only needed while the index is built.
+        long[] heap = new long[1];
+        Path corpusFolder = Files.createTempDirectory("corpus");
+        try {
+            // The scan searches what buildIndex leaves behind in ProjectThree, so there's no index object to return.
+            build(() -> {
+                ProjectThree.buildIndex(corpus, corpusFolder.toFile());
+                return null;
+            }, heap);
+        } finally {
+            IOUtils.rm(corpusFolder);
+        }
+        long scanHeap = heap[0];
+        List<List<String>> queries = new ArrayList<>();
+        for (String query : QueryLog.readCranfield(queryFile)) {
+            queries.add(ProjectThree.normalizeIntoArray(query));
+        }
+        CranfieldEvaluation evaluation = qrels.exists() ? new CranfieldEvaluation(qrels) : null;
+
+        List<ScoreKernel> kernels = new ArrayList<>();
+        kernels.add(new ScoreKernel.Scalar());
+        if (!(ScoreKernel.best() instanceof ScoreKernel.Scalar))
+            kernels.add(ScoreKernel.best());
+        else
+            System.out.println("Vector kernel not available, only timing the scalar one.");
+
+        FileWriter fw = new FileWriter(csv);
+        fw.write("index,heap_bytes,qps,mean_ms,p99_ms,map,overlap_at_10\n");
+        System.out.printf("%-36s %12s %10s %10s %10s %8s %8s%n",
+                "index", "heap bytes", "QPS", "mean ms", "p99 ms", "MAP", "overlap");
+
+        // Keep every index reachable until the end, so building the next one can't free the last one's memory and
+        // throw off its measurement. What the scan searches is kept by ProjectThree itself.
+        List<SearchIndex> indexes = new ArrayList<>();
+        SearchIndex baselineIndex = build(() -> new ShardedIndex(ProjectThree.getDocumentTermFrequencies(), 1), heap);
+        indexes.add(baselineIndex);
+        PruningReport.Run baseline = measure(baselineIndex::search, queries, repeat);
+        report(fw, "double", heap[0], baseline, baseline, evaluation);
+        report(fw, "scanDocuments", scanHeap, measure(QuantizationReport::scanDocuments, queries, repeat), baseline,
+                null);
+
+        for (int bits : new int[]{8, 16}) {
+            for (ScoreKernel kernel : kernels) {
+                SearchIndex index = build(() -> new QuantizedIndex(ProjectThree.getDocumentTermFrequencies(), bits,
+                        kernel), heap);
+                indexes.add(index);
+                report(fw, index.toString(), heap[0], measure(index::search, queries, repeat), baseline, evaluation);
+            }
+        }
+        fw.close();
+        System.out.println("Results written to " + csv.getAbsolutePath() + " (" + indexes.size() + " indexes)");
+    }
+
+    /**
+     * Times an index on the queries. The first run only warms up the JIT, since a single pass isn't enough for the
+     * kernels to get fully compiled, and whichever index went first would look slower.
+     * @param index The search to time.
+     * @param queries The normalized queries.
+     * @param repeat How many timed passes to make.
+     * @return The second run.
+     */
+    private static PruningReport.Run measure(PruningReport.Run.Search index, List<List<String>> queries,
+                                             int repeat) {
+        PruningReport.Run.measure(index, queries, repeat);
+        return PruningReport.Run.measure(index, queries, repeat);
+    }
+
+    /**
+     * Builds an index and measures how much heap it holds on to.
+     * @param builder Builds the index.
+     * @param heap Gets the number of bytes the index holds on to.
+     * @return The index.
+     */
+    private static <T> T build(Supplier<T> builder, long[] heap) {
+        System.gc();
+        System.gc();
+        long before = MEMORY.getHeapMemoryUsage().getUsed();
+        T index = builder.get();
+        System.gc();
+        System.gc();
+        heap[0] = Math.max(0, MEMORY.getHeapMemoryUsage().getUsed() - before);
+        return index;
+    }
+
+    /**
+     * Prints one index's line of the table, and writes it to the CSV.
+     * @param fw The CSV file.
+     * @param label The index's name.
+     * @param heapBytes How much heap the index holds on to.
+     * @param run The index's run.
+     * @param baseline The double-precision run.
+     * @param evaluation The relevance judgements, or null to leave out MAP.
+     * @throws Exception If there's a problem writing the CSV.
+     */
+    private static void report(FileWriter fw, String label, long heapBytes, PruningReport.Run run,
+                               PruningReport.Run baseline, CranfieldEvaluation evaluation) throws Exception {
+        double qps = 1e9 / run.latency.mean();
+        String map = evaluation == null ? ""
+                : String.format(Locale.ROOT, "%.4f", evaluation.meanAveragePrecision(run.results));
+        double overlap = run.overlapWith(baseline);
+        System.out.printf(Locale.ROOT, "%-36s %12d %10.0f %10.4f %10.4f %8s %8.3f%n", label, heapBytes, qps,
+                run.latency.mean() / 1e6, run.latency.percentile(99) / 1e6, map, overlap);
+        fw.write(String.format(Locale.ROOT, "%s,%d,%.1f,%.5f,%.5f,%s,%.4f%n", label, heapBytes, qps,
+                run.latency.mean() / 1e6, run.latency.percentile(99) / 1e6, map, overlap));
+    }
+
+    /**
+     * Runs ProjectThree.scanDocuments and turns its results into ScoredDocuments, so it can be timed like the indexes.
+     * It only ever finds the top 10.
+     * @param tokens The normalized words in the query.
+     * @param k The most documents to return.
+     * @return The documents, best first.
+     */
+    private static List<ScoredDocument> scanDocuments(List<String> tokens, int k) {
+        List<ScoredDocument> results = new ArrayList<>();
+        for (Map.Entry<Double, String> entry
+                : ProjectThree.scanDocuments(new ArrayList<>(tokens)).descendingMap().entrySet()) {
+            if (entry.getKey() > 0 && results.size() < k)
+                results.add(new ScoredDocument(entry.getValue(), entry.getKey()));
+        }
+        return results;
+    }
+}
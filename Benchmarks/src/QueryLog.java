@@ -0,0 +1,88 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the lists of queries the benchmarks replay against an engine.
+ */
+class QueryLog {
+
+    /**
+     * Reads the queries out of a Cranfield query file such as cran.qry.
+     * @param file The query file.
+     * @return The text of each query, in the order they appear in the file.
+     * @throws IOException If there's a problem reading the file.
+     */
+    static List<String> readCranfield(File file) throws IOException {
+        List<String> queries = new ArrayList<>();
+        StringBuilder query = null;
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        String line;
+        while ((line = br.readLine()) != null) {
+            // Each query starts with an .I line. The query text is everything after the .W line.
+            if (line.startsWith(".I")) {
+                if (query != null && !query.toString().isBlank())
+                    queries.add(query.toString().trim());
+                query = null;
+            } else if (line.startsWith(".W")) {
+                query = new StringBuilder();
+            } else if (query != null) {
+                query.append(line).append(" ");
+            }
+        }
+        br.close();
+
+        if (query != null && !query.toString().isBlank())
+            queries.add(query.toString().trim());
+        return queries;
+    }
+
+    /**
+     * Reads a plain query log, with one query on each line.
+     * @param file The query log.
+     * @return Each non-blank line in the file.
+     * @throws IOException If there's a problem reading the file.
+     */
+    static List<String> readLines(File file) throws IOException {
+        List<String> queries = new ArrayList<>();
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (!line.isBlank())
+                queries.add(line.trim());
+        }
+        br.close();
+        return queries;
+    }
+
+    /**
+     * Makes up queries by picking random words out of a term dictionary.
+     * @param vocabulary The terms to pick from.
+     * @param count The number of queries to make.
+     * @param seed The random seed, so the same log can be made again later.
+     * @return The synthetic queries, each between 1 and 6 words long.
+     */
+    static List<String> synthetic(List<String> vocabulary, int count, long seed) {
+        if (vocabulary.isEmpty())
+            throw new IllegalArgumentException("Can't make queries out of an empty vocabulary.");
+
+        Random random = new Random(seed);
+        List<String> queries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = 1 + random.nextInt(6);
+            StringBuilder query = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                query.append(vocabulary.get(random.nextInt(vocabulary.size()))).append(" ");
+            }
+            queries.add(query.toString().trim());
+        }
+        return queries;
+    }
+}
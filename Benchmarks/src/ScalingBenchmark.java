@@ -0,0 +1,296 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs each engine's index build and a fixed set of queries on synthetic collections of growing size, and flags any
+ * cost that grows faster than the collection does.
+ * <p>
+ * Each engine keeps its index in static fields, so every (engine, size) pair is run in a fresh JVM. The child JVM
+ * reports the build time, the peak heap during the build, how much heap the finished index holds on to (plus its
+ * size on disk, for Lucene), and the time to run the queries.
+ * <p>
+ * Options are given as --name=value:
+ * <pre>
+ *   --sizes=10000,20000,40000   Collection sizes to test, in documents.
+ *   --engines=two,three,four    Engines to test.
+ *   --source=FILE               The Cranfield collection to fit the generator to. (cran-1.all.1400)
+ *   --queries=FILE              The fixed query set, in cran.qry format. (cran.qry)
+ *   --work=DIR                  Where to put the generated collections. (a new temp folder)
+ *   --timeout=SECONDS           How long one engine gets at one size before it's stopped. Bigger sizes are then
+ *                               skipped for that engine. (900)
+ *   --jvm=-Xmx8g                Extra arguments for the child JVMs, separated by spaces.
+ *   --tolerance=1.15            Growth exponents above this get flagged as superlinear.
+ *   --csv=FILE                  Where to write the results. (scaling.csv)
+ * </pre>
+ * Any other option, such as --shards, is passed on to the engines. --mapped is the exception: its value is ignored,
+ * and each engine gets its own index file at each size, in that size's collection folder. The file is deleted before
+ * each run, so the build is always timed and a later size never maps an earlier size's index.
+ */
+public class ScalingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> options = LoadGenerator.parseOptions(args);
+        if (options.containsKey("worker")) {
+            runWorker(options);
+            return;
+        }
+
+        String[] sizes = options.getOrDefault("sizes", "10000,20000,40000").split(",");
+        String[] engines = options.getOrDefault("engines", "two,three,four").split(",");
+        File source = new File(options.getOrDefault("source", "cran-1.all.1400"));
+        File queries = new File(options.getOrDefault("queries", "cran.qry"));
+        File work = options.containsKey("work") ? new File(options.get("work"))
+                : Files.createTempDirectory("scaling").toFile();
+        long timeout = Long.parseLong(options.getOrDefault("timeout", "900"));
+        double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "1.15"));
+        File csv = new File(options.getOrDefault("csv", "scaling.csv"));
+
+        // Only write the formats the chosen engines need.
+        boolean needsCranfield = false, needsFiles = false;
+        for (String engine : engines) {
+            needsCranfield |= engine.equals("three");
+            needsFiles |= !engine.equals("three");
+        }
+
+        CorpusGenerator generator = CorpusGenerator.fit(source);
+        System.out.println(generator);
+
+        FileWriter fw = new FileWriter(csv);
+        fw.write("engine,documents,status,build_ms,peak_heap_bytes,index_heap_bytes,index_disk_bytes,query_ms,"
+                + "query_errors,build_exponent,heap_exponent,query_exponent,superlinear\n");
+        System.out.printf("%-6s %10s %8s %12s %14s %14s %14s %12s %s%n", "engine", "documents", "status",
+                "build ms", "peak heap", "index heap", "index disk", "query ms", "flags");
+
+        HashMap<String, HashMap<String, String>> previous = new HashMap<>();
+        HashMap<String, Boolean> stopped = new HashMap<>();
+        for (String size : sizes) {
+            int documents = Integer.parseInt(size.trim());
+            File data = new File(work, "documents-" + documents);
+            if (!data.exists()) {
+                System.out.println("Generating " + documents + " documents...");
+                generator.generate(documents, data, needsCranfield, needsFiles, 4130);
+            }
+
+            for (String engine : engines) {
+                HashMap<String, String> result;
+                if (stopped.getOrDefault(engine, false)) {
+                    result = new HashMap<>();
+                    result.put("status", "skipped");
+                } else {
+                    result = runChild(engine, data, queries, options, timeout);
+                    if (!result.get("status").equals("ok"))
+                        stopped.put(engine, true);
+                }
+                result.put("documents", String.valueOf(documents));
+
+                // Compare against the last size this engine finished. An exponent of 1 is linear growth.
+                String flags = "";
+                double buildExponent = Double.NaN, heapExponent = Double.NaN, queryExponent = Double.NaN;
+                HashMap<String, String> last = previous.get(engine);
+                if (last != null && result.get("status").equals("ok")) {
+                    buildExponent = exponent(last, result, "build_ms");
+                    heapExponent = exponent(last, result, "peak_heap_bytes");
+                    queryExponent = exponent(last, result, "query_ms");
+                    if (buildExponent > tolerance)
+                        flags += "build ";
+                    if (heapExponent > tolerance)
+                        flags += "heap ";
+                    if (queryExponent > tolerance)
+                        flags += "query ";
+                }
+                if (result.get("status").equals("timeout"))
+                    flags += "build ";
+                if (result.get("status").equals("ok"))
+                    previous.put(engine, result);
+
+                System.out.printf("%-6s %10d %8s %12s %14s %14s %14s %12s %s%n", engine, documents,
+                        result.get("status"), result.getOrDefault("build_ms", ""),
+                        result.getOrDefault("peak_heap_bytes", ""), result.getOrDefault("index_heap_bytes", ""),
+                        result.getOrDefault("index_disk_bytes", ""), result.getOrDefault("query_ms", ""),
+                        flags.isEmpty() ? "" : "SUPERLINEAR: " + flags.trim());
+                fw.write(String.format(Locale.ROOT, "%s,%d,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s%n", engine, documents,
+                        result.get("status"), result.getOrDefault("build_ms", ""),
+                        result.getOrDefault("peak_heap_bytes", ""), result.getOrDefault("index_heap_bytes", ""),
+                        result.getOrDefault("index_disk_bytes", ""), result.getOrDefault("query_ms", ""),
+                        result.getOrDefault("query_errors", ""), format(buildExponent), format(heapExponent),
+                        format(queryExponent), flags.trim()));
+                fw.flush();
+            }
+        }
+        fw.close();
+        System.out.println("Results written to " + csv.getAbsolutePath());
+    }
+
+    /**
+     * Runs one engine at one size in a child JVM.
+     * @param engine The engine's name.
+     * @param data The folder holding the generated collection.
+     * @param queries The query file.
+     * @param options The benchmark's options. Ones the benchmark doesn't use itself are passed on.
+     * @param timeout How many seconds to give the child before stopping it.
+     * @return The child's results, with a status of ok, failed, or timeout.
+     * @throws IOException If the child can't be started.
+     * @throws InterruptedException If we're interrupted while waiting for the child.
+     */
+    private static HashMap<String, String> runChild(String engine, File data, File queries,
+                                                    HashMap<String, String> options, long timeout)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        if (options.containsKey("jvm")) {
+            for (String arg : options.get("jvm").trim().split("\\s+")) {
+                command.add(arg);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ScalingBenchmark.class.getName());
+        command.add("--worker=true");
+        command.add("--engine=" + engine);
+        command.add("--data=" + data.getAbsolutePath());
+        command.add("--queries=" + queries.getAbsolutePath());
+        for (String option : new String[]{"shards", "impact-tier", "impact-floor", "quantized", "kernel"}) {
+            if (options.containsKey(option))
+                command.add("--" + option + "=" + options.get(option));
+        }
+
+        // The engines only build a mapped index if the file isn't there yet, and Projects Two and Three write
+        // different formats, so every run gets a fresh file of its own. Project Three also keeps its document store
+        // next to the index.
+        if (options.containsKey("mapped")) {
+            File indexFile = new File(data, engine + ".idx");
+            Files.deleteIfExists(indexFile.toPath());
+            Files.deleteIfExists(new File(data, engine + ".idx.docs").toPath());
+            command.add("--mapped=" + indexFile.getAbsolutePath());
+        }
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+        // Read the child's output on another thread, so it can't block on a full pipe while we wait on it.
+        HashMap<String, String> result = new HashMap<>();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (!line.startsWith("RESULT "))
+                        continue;
+                    for (String pair : line.substring("RESULT ".length()).split(" ")) {
+                        result.put(pair.substring(0, pair.indexOf('=')), pair.substring(pair.indexOf('=') + 1));
+                    }
+                }
+            } catch (IOException e) {
+                // The child died. Its exit code tells us what we need to know.
+            }
+        });
+        reader.start();
+
+        if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+            reader.join();
+            HashMap<String, String> timedOut = new HashMap<>();
+            timedOut.put("status", "timeout");
+            return timedOut;
+        }
+        reader.join();
+
+        if (process.exitValue() != 0 || !result.containsKey("build_ms"))
+            result.put("status", "failed");
+        else
+            result.put("status", "ok");
+        return result;
+    }
+
+    /**
+     * Runs in the child JVM: builds one engine's index and runs the query set against it, then prints the results
+     * on a single RESULT line.
+     * @param options The options the parent passed down.
+     * @throws Exception If the engine fails.
+     */
+    private static void runWorker(HashMap<String, String> options) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        SearchEngine engine = SearchEngine.create(options.get("engine"), new File(options.get("data")), options);
+        List<String> queries = QueryLog.readCranfield(new File(options.get("queries")));
+
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        // Sample the heap while the index builds to catch its peak.
+        AtomicLong peak = new AtomicLong(heapBefore);
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+
+        long start = System.nanoTime();
+        engine.build();
+        long buildNanos = System.nanoTime() - start;
+        sampler.interrupt();
+        sampler.join();
+        peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+
+        // Whatever's still reachable after a collection is the index.
+        System.gc();
+        long indexHeap = Math.max(0, memory.getHeapMemoryUsage().getUsed() - heapBefore);
+
+        // Some of the engines fail on big collections in ways that aren't Exceptions, like running out of stack in
+        // a recursive intersection, so count anything thrown as an error and keep going.
+        int errors = 0;
+        start = System.nanoTime();
+        for (String query : queries) {
+            try {
+                engine.search(query);
+            } catch (Throwable t) {
+                errors++;
+            }
+        }
+        long queryNanos = System.nanoTime() - start;
+
+        System.out.printf(Locale.ROOT, "RESULT build_ms=%.1f peak_heap_bytes=%d index_heap_bytes=%d "
+                        + "index_disk_bytes=%d query_ms=%.1f query_errors=%d%n", buildNanos / 1e6,
+                peak.get() - heapBefore, indexHeap, engine.indexDiskBytes(), queryNanos / 1e6, errors);
+        engine.close();
+    }
+
+    /**
+     * Works out how fast a cost grew relative to the collection between two sizes. 1 means it grew at the same rate
+     * as the collection, 2 means it grew with the square of it.
+     * @param smaller The results at the smaller size.
+     * @param larger The results at the larger size.
+     * @param key The cost to compare.
+     * @return The growth exponent, or NaN if it can't be worked out.
+     */
+    private static double exponent(HashMap<String, String> smaller, HashMap<String, String> larger, String key) {
+        double costRatio = Double.parseDouble(larger.get(key)) / Double.parseDouble(smaller.get(key));
+        double sizeRatio = Double.parseDouble(larger.get("documents")) / Double.parseDouble(smaller.get("documents"));
+        if (costRatio <= 0 || sizeRatio <= 1 || Double.isInfinite(costRatio))
+            return Double.NaN;
+        return Math.log(costRatio) / Math.log(sizeRatio);
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,266 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Common face for the search engines from each project, so the benchmarks can drive any of them the same way.
+ * An engine has to be safe to search from several threads at once once build() has returned.
+ */
+interface SearchEngine {
+
+    /**
+     * Gets the name the engine is chosen by on the command line.
+     * @return The engine's name.
+     */
+    String name();
+
+    /**
+     * Builds the engine's index. Only called once, before any searches.
+     * @throws IOException If there's a problem reading the documents.
+     */
+    void build() throws IOException;
+
+    /**
+     * Runs a single query.
+     * @param query The query.
+     * @return The number of results the engine returned.
+     * @throws Exception If the engine couldn't run the query.
+     */
+    int search(String query) throws Exception;
+
+    /**
+     * Gets every term in the engine's dictionary. Used to make up synthetic queries.
+     * @return The terms in the index.
+     * @throws IOException If there's a problem reading the index.
+     */
+    List<String> vocabulary() throws IOException;
+
+    /**
+     * Gets how much disk space the engine's index takes up. Engines that keep their index on the heap return 0.
+     * @return The size of the index on disk in bytes.
+     * @throws IOException If there's a problem reading the index's files.
+     */
+    default long indexDiskBytes() throws IOException {
+        return 0;
+    }
+
+    /**
+     * Releases anything the engine is holding on to.
+     * @throws IOException If there's a problem cleaning up the index.
+     */
+    default void close() throws IOException {
+    }
+
+    /**
+     * Creates an engine by name.
+     * @param name "two", "three", or "four", after the project the engine comes from.
+     * @param data The directory the engine should read its documents from. For Project Three this is the directory
+     *             holding cran-1.all.1400.
+     * @param options Any other command line options. Projects Two and Three use --mapped, and Project Three uses
+     *                --shards, --impact-tier and --impact-floor, and --quantized and --kernel.
+     * @return The engine.
+     */
+    static SearchEngine create(String name, File data, Map<String, String> options) {
+        switch (name.toLowerCase()) {
+            case "two":
+                return new ProjectTwoEngine(new File(data, "corpus"), options);
+            case "three":
+                return new ProjectThreeEngine(new File(data, "cran-1.all.1400"), options);
+            case "four":
+                return new ProjectFourEngine(new File(data, "corpus"));
+            default:
+                throw new IllegalArgumentException("Unknown engine \"" + name + "\". Use two, three, or four.");
+        }
+    }
+}
+
+/**
+ * Project Two's boolean search over the positional index.
+ */
+class ProjectTwoEngine implements SearchEngine {
+    private final File corpus;
+    private final Map<String, String> options;
+
+    ProjectTwoEngine(File corpus, Map<String, String> options) {
+        this.corpus = corpus;
+        this.options = options;
+    }
+
+    @Override
+    public String name() {
+        return "two";
+    }
+
+    @Override
+    public void build() {
+        if (options.containsKey("mapped"))
+            InformationRetrieval.useMappedIndex(corpus, new File(options.get("mapped")));
+        else
+            InformationRetrieval.buildIndex(corpus);
+    }
+
+    @Override
+    public int search(String query) {
+        return InformationRetrieval.search(query).size();
+    }
+
+    @Override
+    public List<String> vocabulary() {
+        return InformationRetrieval.getVocabulary();
+    }
+
+    @Override
+    public long indexDiskBytes() {
+        return options.containsKey("mapped") ? new File(options.get("mapped")).length() : 0;
+    }
+}
+
+/**
+ * Project Three's ranked tf-idf search over the Cranfield collection.
+ */
+class ProjectThreeEngine implements SearchEngine {
+    private final File corpusFile;
+    private final Map<String, String> options;
+    private Path corpusFolder;
+
+    ProjectThreeEngine(File corpusFile, Map<String, String> options) {
+        this.corpusFile = corpusFile;
+        this.options = options;
+    }
+
+    @Override
+    public String name() {
+        return "three";
+    }
+
+    @Override
+    public void build() throws IOException {
+        // Project Three extracts each document into its own file before indexing, so give it a scratch folder.
+        corpusFolder = Files.createTempDirectory("corpus");
+        if (options.containsKey("mapped")) {
+            ProjectThree.useMappedIndex(corpusFile, corpusFolder.toFile(), new File(options.get("mapped")));
+        } else {
+            ProjectThree.buildIndex(corpusFile, corpusFolder.toFile());
+            if (options.containsKey("shards"))
+                ProjectThree.useShardedIndex(Integer.parseInt(options.get("shards")));
+            else if (options.containsKey("impact-tier") || options.containsKey("impact-floor"))
+                ProjectThree.useImpactIndex(Integer.parseInt(options.getOrDefault("impact-tier", "50")),
+                        Double.parseDouble(options.getOrDefault("impact-floor", "0")));
+            else if (options.containsKey("quantized"))
+                ProjectThree.useQuantizedIndex(Integer.parseInt(options.get("quantized")),
+                        ScoreKernel.named(options.getOrDefault("kernel", "best")));
+        }
+    }
+
+    @Override
+    public int search(String query) {
+        return ProjectThree.search(query).size();
+    }
+
+    @Override
+    public List<String> vocabulary() {
+        return ProjectThree.getVocabulary();
+    }
+
+    @Override
+    public long indexDiskBytes() {
+        // A mapped index brings its document store along in a second file.
+        if (!options.containsKey("mapped"))
+            return 0;
+        return new File(options.get("mapped")).length() + new File(options.get("mapped") + ".docs").length();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Stops a sharded index's threads.
+        ProjectThree.closeSearchIndex();
+
+        // One file per document adds up fast when the scaling benchmark runs big collections.
+        if (corpusFolder != null)
+            IOUtils.rm(corpusFolder);
+    }
+}
+
+/**
+ * Project Four's Lucene search.
+ */
+class ProjectFourEngine implements SearchEngine {
+    private final File corpus;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private Path indexPath;
+    private Directory directory;
+    private DirectoryReader ireader;
+    private IndexSearcher isearcher;
+
+    ProjectFourEngine(File corpus) {
+        this.corpus = corpus;
+    }
+
+    @Override
+    public String name() {
+        return "four";
+    }
+
+    @Override
+    public void build() throws IOException {
+        indexPath = Files.createTempDirectory("tempIndex");
+        directory = Main.buildIndex(corpus, indexPath, analyzer);
+        ireader = DirectoryReader.open(directory);
+        isearcher = new IndexSearcher(ireader);
+    }
+
+    @Override
+    public int search(String query) throws Exception {
+        // The logged queries are plain text, so escape anything Lucene would read as query syntax.
+        return Main.search(isearcher, analyzer, QueryParser.escape(query), 5).length;
+    }
+
+    @Override
+    public List<String> vocabulary() throws IOException {
+        List<String> vocabulary = new ArrayList<>();
+        Terms terms = MultiTerms.getTerms(ireader, "body");
+        if (terms != null) {
+            TermsEnum termsEnum = terms.iterator();
+            BytesRef term;
+            while ((term = termsEnum.next()) != null) {
+                vocabulary.add(term.utf8ToString());
+            }
+        }
+        return vocabulary;
+    }
+
+    @Override
+    public long indexDiskBytes() throws IOException {
+        long bytes = 0;
+        for (String file : directory.listAll()) {
+            bytes += directory.fileLength(file);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ireader.close();
+        directory.close();
+        IOUtils.rm(indexPath);
+    }
+}
@@ -0,0 +1,272 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import org.apache.lucene.util.IOUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Times spelling correction with TermDictionary's Levenshtein automaton against checking the edit distance to every
+ * term, as the vocabulary grows.
+ * <p>
+ * The vocabulary starts as the real Cranfield terms. Bigger ones are padded out with made-up words from a letter
+ * bigram model of the real terms, so they look like English and share prefixes the way real words do. The queries
+ * are words from cran.qry with one or two random edits made to them.
+ * <p>
+ * Options are given as --name=value:
+ * <pre>
+ *   --data=DIR                   The Project 3 folder, holding cran-1.all.1400 and cran.qry. (.)
+ *   --sizes=10000,100000,1000000 Vocabulary sizes to test.
+ *   --queries=N                  How many misspelled words to correct at each size. (2000)
+ *   --brute-force-limit=N        The biggest vocabulary to time the brute force search on. (1000000)
+ *   --edits=N                    The most edits allowed. (2)
+ *   --prefix=N                   How many letters at the start of a word have to match. (0)
+ *   --seed=N                     Random seed. (4130)
+ *   --csv=FILE                   Where to write the results. (spelling.csv)
+ * </pre>
+ */
+public class SpellingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> options = LoadGenerator.parseOptions(args);
+        File data = new File(options.getOrDefault("data", "."));
+        String[] sizes = options.getOrDefault("sizes", "10000,100000,1000000").split(",");
+        int queryCount = Integer.parseInt(options.getOrDefault("queries", "2000"));
+        int bruteForceLimit = Integer.parseInt(options.getOrDefault("brute-force-limit", "1000000"));
+        int edits = Integer.parseInt(options.getOrDefault("edits", "2"));
+        int prefix = Integer.parseInt(options.getOrDefault("prefix", "0"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "4130"));
+        File csv = new File(options.getOrDefault("csv", "spelling.csv"));
+
+        // Count each real term's document frequency.
+        // The extracted documents are only needed while the index is built.
+        Path corpusFolder = Files.createTempDirectory("corpus");
+        try {
+            ProjectThree.buildIndex(new File(data, "cran-1.all.1400"), corpusFolder.toFile());
+        } finally {
+            IOUtils.rm(corpusFolder);
+        }
+        HashMap<String, Integer> real = new HashMap<>();
+        for (HashMap<Term, Integer> document : ProjectThree.getDocumentTermFrequencies().values()) {
+            for (Term term : document.keySet()) {
+                real.merge(term.toString(), 1, Integer::sum);
+            }
+        }
+
+        Random random = new Random(seed);
+        List<String> queries = misspell(QueryLog.readCranfield(new File(data, "cran.qry")), queryCount, random);
+
+        FileWriter fw = new FileWriter(csv);
+        fw.write("vocabulary,automaton_mean_us,automaton_p50_us,automaton_p99_us,brute_mean_us,brute_p50_us,"
+                + "brute_p99_us,corrected,agreement\n");
+        System.out.printf("%12s %14s %14s %14s %14s %10s %10s%n", "vocabulary", "automaton us", "automaton p99",
+                "brute us", "brute p99", "corrected", "agree");
+
+        for (String size : sizes) {
+            HashMap<String, Integer> vocabulary = pad(real, Integer.parseInt(size.trim()), random);
+            TermDictionary dictionary = new TermDictionary(vocabulary);
+            ArrayList<Map.Entry<String, Integer>> terms = new ArrayList<>(vocabulary.entrySet());
+
+            // Warm up, then time the automaton on every query.
+            for (String query : queries) {
+                correct(dictionary, query, edits, prefix);
+            }
+            LatencyHistogram automaton = new LatencyHistogram();
+            ArrayList<String> automatonResults = new ArrayList<>();
+            for (String query : queries) {
+                long start = System.nanoTime();
+                String result = correct(dictionary, query, edits, prefix);
+                automaton.record(System.nanoTime() - start);
+                automatonResults.add(result);
+            }
+
+            // The brute force search is the reference answer, when the vocabulary is small enough to wait for it.
+            LatencyHistogram bruteForce = new LatencyHistogram();
+            int corrected = 0, agreed = 0, compared = 0;
+            for (int i = 0; i < queries.size(); i++) {
+                if (automatonResults.get(i) != null)
+                    corrected++;
+                if (vocabulary.size() > bruteForceLimit)
+                    continue;
+                long start = System.nanoTime();
+                String result = bruteForce(terms, queries.get(i), edits, prefix);
+                bruteForce.record(System.nanoTime() - start);
+                compared++;
+                if (Objects.equals(result, automatonResults.get(i)))
+                    agreed++;
+            }
+
+            String bruteMean = compared == 0 ? "" : String.format(Locale.ROOT, "%.1f", bruteForce.mean() / 1e3);
+            String bruteP50 = compared == 0 ? "" : String.format(Locale.ROOT, "%.1f", bruteForce.percentile(50) / 1e3);
+            String bruteP99 = compared == 0 ? "" : String.format(Locale.ROOT, "%.1f", bruteForce.percentile(99) / 1e3);
+            String agreement = compared == 0 ? "" : String.format(Locale.ROOT, "%.4f", (double) agreed / compared);
+            System.out.printf(Locale.ROOT, "%12d %14.1f %14.1f %14s %14s %10d %10s%n", vocabulary.size(),
+                    automaton.mean() / 1e3, automaton.percentile(99) / 1e3, bruteMean, bruteP99, corrected,
+                    agreement);
+            fw.write(String.format(Locale.ROOT, "%d,%.2f,%.2f,%.2f,%s,%s,%s,%d,%s%n", vocabulary.size(),
+                    automaton.mean() / 1e3, automaton.percentile(50) / 1e3, automaton.percentile(99) / 1e3,
+                    bruteMean, bruteP50, bruteP99, corrected, agreement));
+            fw.flush();
+        }
+        fw.close();
+        System.out.println("Results written to " + csv.getAbsolutePath());
+    }
+
+    /**
+     * Corrects a word with the automaton, the same way TermDictionary.correct does but with a prefix that has to
+     * match.
+     * @param dictionary The dictionary.
+     * @param word The word to correct.
+     * @param maxEdits The most edits allowed.
+     * @param prefixLength How many letters at the start of the word have to match.
+     * @return The most common close term, or null if nothing is close enough.
+     */
+    private static String correct(TermDictionary dictionary, String word, int maxEdits, int prefixLength) {
+        List<TermDictionary.Suggestion> suggestions = dictionary.suggest(word, maxEdits, prefixLength);
+        return suggestions.isEmpty() ? null : suggestions.get(0).term;
+    }
+
+    /**
+     * Makes misspelled words by taking words from the queries and making one or two random insertions, deletions,
+     * or substitutions in each.
+     * @param queries The queries to take words from.
+     * @param count How many misspelled words to make.
+     * @param random The random number generator.
+     * @return The misspelled words.
+     */
+    private static List<String> misspell(List<String> queries, int count, Random random) {
+        ArrayList<String> words = new ArrayList<>();
+        for (String query : queries) {
+            for (String word : ProjectThree.normalizeIntoArray(query)) {
+                if (word.length() >= 6)
+                    words.add(word);
+            }
+        }
+
+        ArrayList<String> misspelled = new ArrayList<>();
+        while (misspelled.size() < count) {
+            StringBuilder word = new StringBuilder(words.get(random.nextInt(words.size())));
+            int changes = 1 + random.nextInt(2);
+            for (int c = 0; c < changes; c++) {
+                int position = random.nextInt(word.length());
+                char letter = (char) ('a' + random.nextInt(26));
+                switch (random.nextInt(3)) {
+                    case 0 -> word.insert(position, letter);
+                    case 1 -> word.deleteCharAt(position);
+                    default -> word.setCharAt(position, letter);
+                }
+            }
+            misspelled.add(word.toString());
+        }
+        return misspelled;
+    }
+
+    /**
+     * Adds made-up words to a vocabulary until it reaches a size. Each one is built a letter at a time, picking each
+     * letter by how often it follows the last one in the real words.
+     * @param real The real terms and their document frequencies.
+     * @param size The size to reach.
+     * @param random The random number generator.
+     * @return The padded vocabulary. Made-up words get a document frequency of 1.
+     */
+    private static HashMap<String, Integer> pad(Map<String, Integer> real, int size, Random random) {
+        // '^' marks the start of a word and '$' the end.
+        HashMap<Character, StringBuilder> followers = new HashMap<>();
+        for (String word : real.keySet()) {
+            char previous = '^';
+            for (char c : (word + "$").toCharArray()) {
+                followers.computeIfAbsent(previous, key -> new StringBuilder()).append(c);
+                previous = c;
+            }
+        }
+
+        HashMap<String, Integer> vocabulary = new HashMap<>(real);
+        HashSet<String> seen = new HashSet<>(real.keySet());
+        while (vocabulary.size() < size) {
+            StringBuilder word = new StringBuilder();
+            char previous = '^';
+            while (word.length() < 20) {
+                StringBuilder choices = followers.get(previous);
+                char next = choices.charAt(random.nextInt(choices.length()));
+                if (next == '$')
+                    break;
+                word.append(next);
+                previous = next;
+            }
+            if (word.length() >= 3 && seen.add(word.toString()))
+                vocabulary.put(word.toString(), 1);
+        }
+        return vocabulary;
+    }
+
+    /**
+     * Corrects a word by checking its edit distance to every term. Terms whose length alone puts them too far away
+     * are skipped. Follows the same rules as TermDictionary: the term with the highest document frequency wins, then
+     * the closest, then the first alphabetically.
+     * @param terms Every term and its document frequency.
+     * @param word The word to correct.
+     * @param maxEdits The most edits allowed, though short words are allowed fewer.
+     * @param prefixLength How many letters at the start of the word have to match.
+     * @return The best term, or null if nothing is close enough.
+     */
+    private static String bruteForce(List<Map.Entry<String, Integer>> terms, String word, int maxEdits,
+                                     int prefixLength) {
+        if (word.length() < 3)
+            maxEdits = 0;
+        else if (word.length() < 6)
+            maxEdits = Math.min(maxEdits, 1);
+
+        String prefix = word.substring(0, Math.min(prefixLength, word.length()));
+        String best = null;
+        int bestEdits = maxEdits + 1;
+        int bestFrequency = 0;
+        for (Map.Entry<String, Integer> entry : terms) {
+            String term = entry.getKey();
+            if (Math.abs(term.length() - word.length()) > maxEdits || !term.startsWith(prefix))
+                continue;
+            int distance = editDistance(term, word);
+            if (distance > maxEdits)
+                continue;
+            if (entry.getValue() > bestFrequency || (entry.getValue() == bestFrequency && (distance < bestEdits
+                    || (distance == bestEdits && term.compareTo(best) < 0)))) {
+                best = term;
+                bestEdits = distance;
+                bestFrequency = entry.getValue();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The usual dynamic programming edit distance, keeping just two rows of the table.
+     */
+    private static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), substitution);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -12,39 +12,149 @@ import java.util.regex.Pattern;
 public class InformationRetrieval {
     public static final HashMap<String, ArrayList<Integer>> positionalIndex = new HashMap<>();
 
+    // If this is set, searches read the postings out of this memory-mapped file instead of positionalIndex.
+    private static MappedPositionalIndex mappedIndex = null;
+
+    // Sorted list of the indexed words, used to correct misspelled query words. It's in the Shared folder, see the
+    // README for how to compile it in.
+    private static TermDictionary spellingDictionary = null;
+
     public static void main(String[] args) {
         // Store the relative path to the directory containing all the files to be included.
         String path = "corpus";
         File directory = new File(path);
 
         // Tokenize the files and build a positional index.
-        buildIndex(directory);
+        // Running with --mapped=index.bin searches a memory-mapped copy of the index instead, building the file
+        // first if it isn't there yet.
+        if (args.length > 0 && args[0].startsWith("--mapped=")) {
+            useMappedIndex(directory, new File(args[0].substring("--mapped=".length())));
+        } else {
+            buildIndex(directory);
+        }
+        useSpellingDictionary();
 
         // Prompt the user for a query.
         Scanner scanner = new Scanner(System.in);
         System.out.print("Enter a query: ");
         String query = scanner.nextLine();
 
+        // If any of the words were corrected, show the user what we searched for instead.
+        ArrayList<String> words = normalizeIntoArray(query);
+        ArrayList<String> corrected = correctSpelling(words);
+        if (!corrected.equals(words)) {
+            query = String.join(" ", corrected);
+            System.out.println("Did you mean: " + query + "?");
+        }
+
+        // Get all the relevant documents and give them to the user.
+        ArrayList<Integer> relevantDocs = search(query);
+        System.out.println("Relevant Documents: " + relevantDocs);
+
+        // For project two: builds and posts the Variable Byte encoded gap list.
+        for (Map.Entry<String, ArrayList<String>> entry : encodeMap().entrySet()) {
+            System.out.println(entry);
+        }
+    }
+
+    /**
+     * Finds every document that contains all the words in the query.
+     * @param query The query.
+     * @return The IDs of the documents that contain every word in the query.
+     */
+    static ArrayList<Integer> search(String query) {
+        // The query is searched as given. main runs it through correctSpelling first, since a misspelled word would
+        // make the intersection come up empty.
+        ArrayList<String> words = normalizeIntoArray(query);
+        if (mappedIndex != null) {
+            return mappedIndex.search(words);
+        }
+
         // Build another HashMap with the user's query using relevant doc index values in the positional index.
         // Using a Linked Hash Map ensures there will be no duplicate lists, but there shouldn't be anyway.
+        // intersect() eats the lists it's given, so we hand it copies. That way the positional index is left alone
+        // and more than one query can run against it at the same time.
         HashMap<String, ArrayList<Integer>> queryMap = new LinkedHashMap<>();
-        for (String word : normalizeIntoArray(query)) {
+        for (String word : words) {
             ArrayList<Integer> indexList = positionalIndex.get(word);
             if (indexList != null) {
-                queryMap.put(word, positionalIndex.get(word));
+                queryMap.put(word, new ArrayList<>(indexList));
             } else {
                 queryMap.put(word, new ArrayList<>());
             }
         }
 
-        // Get all the relevant documents and give them to the user.
-        ArrayList<Integer> relevantDocs = mapIntersect(queryMap);
-        System.out.println("Relevant Documents: " + relevantDocs);
+        // A query without any words can't match anything.
+        if (queryMap.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        // For project two: builds and posts the Variable Byte encoded gap list.
-        for (Map.Entry<String, ArrayList<String>> entry : encodeMap().entrySet()) {
-            System.out.println(entry);
+        return mapIntersect(queryMap);
+    }
+
+    /**
+     * Gets every word in the index.
+     * @return The words, from whichever index is in use.
+     */
+    static ArrayList<String> getVocabulary() {
+        if (mappedIndex != null)
+            return mappedIndex.terms();
+        return new ArrayList<>(positionalIndex.keySet());
+    }
+
+    /**
+     * Builds the sorted word list used for spelling correction, from whichever index is in use.
+     */
+    static void useSpellingDictionary() {
+        HashMap<String, Integer> documentFrequencies = new HashMap<>();
+        if (mappedIndex != null) {
+            documentFrequencies = mappedIndex.documentFrequencies();
+        } else {
+            for (Map.Entry<String, ArrayList<Integer>> entry : positionalIndex.entrySet()) {
+                documentFrequencies.put(entry.getKey(), entry.getValue().size());
+            }
         }
+        spellingDictionary = new TermDictionary(documentFrequencies);
+    }
+
+    /**
+     * Replaces each query word that isn't in the index with the most common word within two edits of it. Words with
+     * nothing close enough are left alone.
+     * @param words The normalized words in the query.
+     * @return The corrected words, or a copy of them if there's no spelling dictionary.
+     */
+    static ArrayList<String> correctSpelling(List<String> words) {
+        ArrayList<String> corrected = new ArrayList<>(words);
+        if (spellingDictionary == null)
+            return corrected;
+
+        for (int i = 0; i < corrected.size(); i++) {
+            if (spellingDictionary.contains(corrected.get(i)))
+                continue;
+            String word = spellingDictionary.correct(corrected.get(i), 2);
+            if (word != null)
+                corrected.set(i, word);
+        }
+        return corrected;
+    }
+
+    /**
+     * Sends all searches from here on to a memory-mapped index file, building the file first if it doesn't exist.
+     * Once the file is mapped, the in-memory positional index is thrown away to free up the heap.
+     * @param directory The directory containing the text files, used if the index file has to be built.
+     * @param file The mapped index file.
+     */
+    static void useMappedIndex(File directory, File file) {
+        try {
+            if (!file.exists()) {
+                buildIndex(directory);
+                MappedPositionalIndex.write(positionalIndex, file);
+            }
+            mappedIndex = MappedPositionalIndex.open(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Problem with the mapped index file.", e);
+        }
+        positionalIndex.clear();
     }
 
     /**
@@ -55,6 +165,12 @@ public class InformationRetrieval {
     private static HashMap<String, ArrayList<String>> encodeMap() {
         HashMap<String, ArrayList<String>> encodedMap = new HashMap<>();
 
+        // The positional index is thrown away once a mapped file is in use, so read the postings back out of it.
+        if (mappedIndex != null) {
+            mappedIndex.forEachPostings((word, postings) -> encodedMap.put(word, VBEncode(postings)));
+            return encodedMap;
+        }
+
         // For each key-value entry in the map, get the Variable Byte encoded format of the values and then enter the
         // new key-value pair into 'encodedMap'.
         for (Map.Entry<String, ArrayList<Integer>> entry : InformationRetrieval.positionalIndex.entrySet()) {
@@ -252,7 +368,7 @@ public class InformationRetrieval {
      * positional index.
      * @param directory The directory containing the text files to be tokenized.
      */
-    private static void buildIndex(File directory) {
+    static void buildIndex(File directory) {
         BufferedReader br;
         String line;
 
@@ -0,0 +1,245 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The positional index, written to a file and memory-mapped instead of kept on the heap as a HashMap of ArrayLists.
+ * The operating system pages postings in as they're needed and intersections read them straight out of the
+ * mapping, so heap use doesn't grow with the size of the corpus.
+ * <p>
+ * File layout:
+ * <pre>
+ *   header      magic, version, term count, and the offset of each section below
+ *   dictionary  one (string offset, length, document count, postings offset) entry per term, sorted by term
+ *   postings    for each term, the sorted IDs of the documents it appears in
+ *   strings     the UTF-8 bytes of every term
+ * </pre>
+ */
+class MappedPositionalIndex {
+    private static final int MAGIC = 0x43534932;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int DICTIONARY_ENTRY_SIZE = 24;
+
+    private final MappedFile file;
+    private final int termCount;
+    private final long dictionaryOffset;
+
+    private MappedPositionalIndex(MappedFile file) {
+        this.file = file;
+        if (file.getInt(0) != MAGIC || file.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Not a version " + VERSION + " mapped positional index.");
+        termCount = file.getInt(8);
+        dictionaryOffset = file.getLong(16);
+    }
+
+    /**
+     * Maps an index file written by write().
+     * @param file The index file.
+     * @return The index.
+     * @throws IOException If there's a problem mapping the file.
+     */
+    static MappedPositionalIndex open(File file) throws IOException {
+        return new MappedPositionalIndex(new MappedFile(file));
+    }
+
+    /**
+     * Writes a positional index out to a file that can be mapped with open().
+     * @param index The positional index.
+     * @param file The file to write.
+     * @throws IOException If there's a problem writing the file.
+     */
+    static void write(Map<String, ArrayList<Integer>> index, File file) throws IOException {
+        // Terms are sorted by their UTF-8 bytes, since that's how the dictionary gets searched.
+        byte[][] terms = new byte[index.size()][];
+        int t = 0;
+        long totalPostings = 0;
+        for (Map.Entry<String, ArrayList<Integer>> entry : index.entrySet()) {
+            terms[t++] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            totalPostings += entry.getValue().size();
+        }
+        Arrays.sort(terms, Arrays::compareUnsigned);
+
+        long dictionaryOffset = HEADER_SIZE;
+        long postingsOffset = dictionaryOffset + (long) terms.length * DICTIONARY_ENTRY_SIZE;
+        long stringsOffset = postingsOffset + totalPostings * 4;
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(terms.length);
+        out.writeInt(0);
+        out.writeLong(dictionaryOffset);
+        out.writeLong(postingsOffset);
+        out.writeLong(stringsOffset);
+
+        long stringPosition = stringsOffset;
+        long postingPosition = postingsOffset;
+        for (byte[] term : terms) {
+            int size = index.get(new String(term, StandardCharsets.UTF_8)).size();
+            out.writeLong(stringPosition);
+            out.writeInt(term.length);
+            out.writeInt(size);
+            out.writeLong(postingPosition);
+            stringPosition += term.length;
+            postingPosition += (long) size * 4;
+        }
+
+        // buildIndex adds documents in whatever order the file system lists them, so sort each list here. The
+        // intersection depends on it.
+        for (byte[] term : terms) {
+            ArrayList<Integer> postings = new ArrayList<>(index.get(new String(term, StandardCharsets.UTF_8)));
+            Collections.sort(postings);
+            for (int doc : postings) {
+                out.writeInt(doc);
+            }
+        }
+
+        for (byte[] term : terms) {
+            out.write(term);
+        }
+        out.close();
+    }
+
+    /**
+     * Reads every term in the dictionary along with the number of documents it appears in.
+     * @return Each term mapped to its document frequency.
+     */
+    HashMap<String, Integer> documentFrequencies() {
+        HashMap<String, Integer> documentFrequencies = new HashMap<>();
+        for (int i = 0; i < termCount; i++) {
+            long entryOffset = dictionaryOffset + (long) i * DICTIONARY_ENTRY_SIZE;
+            documentFrequencies.put(termAt(entryOffset), file.getInt(entryOffset + 12));
+        }
+        return documentFrequencies;
+    }
+
+    /**
+     * Reads every term's postings back out of the file, one term at a time, so only one list is ever copied onto
+     * the heap.
+     * @param action Gets each term and the sorted IDs of the documents it appears in.
+     */
+    void forEachPostings(BiConsumer<String, ArrayList<Integer>> action) {
+        for (int i = 0; i < termCount; i++) {
+            long entryOffset = dictionaryOffset + (long) i * DICTIONARY_ENTRY_SIZE;
+            int size = file.getInt(entryOffset + 12);
+            long position = file.getLong(entryOffset + 16);
+            ArrayList<Integer> postings = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                postings.add(file.getInt(position + 4L * j));
+            }
+            action.accept(termAt(entryOffset), postings);
+        }
+    }
+
+    /**
+     * Finds every document that contains all the given words.
+     * @param words The normalized words in the query.
+     * @return The IDs of the documents that contain every word, in order.
+     */
+    ArrayList<Integer> search(List<String> words) {
+        // Look up each distinct word. If any of them isn't in the index, nothing can match.
+        ArrayList<long[]> lists = new ArrayList<>();
+        for (String word : new LinkedHashSet<>(words)) {
+            long entryOffset = findTerm(word.getBytes(StandardCharsets.UTF_8));
+            if (entryOffset < 0)
+                return new ArrayList<>();
+            lists.add(new long[]{file.getLong(entryOffset + 16), file.getInt(entryOffset + 12)});
+        }
+        if (lists.isEmpty())
+            return new ArrayList<>();
+
+        // Like mapIntersect, start with the shortest list so the running intersection stays as small as possible.
+        lists.sort((a, b) -> Long.compare(a[1], b[1]));
+        int[] matches = new int[(int) lists.get(0)[1]];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = file.getInt(lists.get(0)[0] + 4L * i);
+        }
+        int size = matches.length;
+
+        // Merge the running intersection with each of the other lists, reading them in place.
+        for (int l = 1; l < lists.size() && size > 0; l++) {
+            long position = lists.get(l)[0];
+            long end = position + 4 * lists.get(l)[1];
+            int kept = 0;
+            int i = 0;
+            while (i < size && position < end) {
+                int doc = file.getInt(position);
+                if (matches[i] == doc) {
+                    matches[kept++] = doc;
+                    i++;
+                    position += 4;
+                } else if (matches[i] < doc) {
+                    i++;
+                } else {
+                    position += 4;
+                }
+            }
+            size = kept;
+        }
+
+        ArrayList<Integer> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(matches[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Binary searches the dictionary for a term.
+     * @param term The term's UTF-8 bytes.
+     * @return The offset of the term's dictionary entry, or -1 if the term isn't in the index.
+     */
+    private long findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long entryOffset = dictionaryOffset + (long) middle * DICTIONARY_ENTRY_SIZE;
+
+            int comparison = file.compareString(file.getLong(entryOffset), file.getInt(entryOffset + 8), term);
+            if (comparison < 0)
+                low = middle + 1;
+            else if (comparison > 0)
+                high = middle - 1;
+            else
+                return entryOffset;
+        }
+        return -1;
+    }
+
+    /**
+     * Copies a term out of the strings section.
+     * @param entryOffset The offset of the term's dictionary entry.
+     * @return The term.
+     */
+    private String termAt(long entryOffset) {
+        return file.getString(file.getLong(entryOffset), file.getInt(entryOffset + 8));
+    }
+
+    /**
+     * Reads every term in the dictionary.
+     * @return The terms, in the order they're sorted in the file.
+     */
+    ArrayList<String> terms() {
+        ArrayList<String> terms = new ArrayList<>(termCount);
+        for (int i = 0; i < termCount; i++) {
+            terms.add(termAt(dictionaryOffset + (long) i * DICTIONARY_ENTRY_SIZE));
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,456 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Holds the text of every abstract, compressed, so search results can show a snippet without going back to the files
+ * clean() wrote out.
+ * <p>
+ * Documents are packed one after another into blocks of about 16 KB, and each block is compressed on its own. For
+ * every document we keep which block it's in and where it starts inside the block, so fetching one document only
+ * ever means decompressing one block. Each document's entry also holds the character offsets of its tokens, so a
+ * snippet can be cut out without tokenizing the text again.
+ * <p>
+ * The whole store is laid out as one run of bytes, which is either kept in a byte array or written to a file and
+ * memory-mapped, so a mapped index doesn't have to re-read the collection to show snippets:
+ * <pre>
+ *   header      magic, version, document count, block count, and the offset of each section below
+ *   blocks      one (data offset, compressed length, uncompressed length) entry per block
+ *   documents   one (name offset, name length, block, offset in block) entry per document, sorted by name
+ *   strings     the UTF-8 bytes of every document name
+ *   data        the compressed blocks
+ * </pre>
+ * Offsets are ints, so a store can be up to 2 GB.
+ */
+class DocumentStore {
+    private static final int MAGIC = 0x43534344;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int BLOCK_ENTRY_SIZE = 12;
+    private static final int DOCUMENT_ENTRY_SIZE = 16;
+
+    // Big enough to compress well, small enough that decompressing one is cheap.
+    private static final int BLOCK_SIZE = 16 * 1024;
+
+    // How many tokens a snippet covers.
+    private static final int SNIPPET_TOKENS = 30;
+
+    // Only ever read with absolute gets, so searches on several threads can share it.
+    private final ByteBuffer bytes;
+    private final int documentCount;
+    private final int blockCount;
+    private final int blocksOffset;
+    private final int documentsOffset;
+    private final int dataOffset;
+
+    private DocumentStore(ByteBuffer bytes) {
+        this.bytes = bytes;
+        if (bytes.getInt(0) != MAGIC || bytes.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Not a version " + VERSION + " document store.");
+        documentCount = bytes.getInt(8);
+        blockCount = bytes.getInt(12);
+        blocksOffset = bytes.getInt(16);
+        documentsOffset = bytes.getInt(20);
+        dataOffset = bytes.getInt(28);
+    }
+
+    /**
+     * Builds a store from a Cranfield-formatted collection and keeps it in memory. Only the part of each document
+     * that clean() keeps is stored: everything after the .W line.
+     * @param file The file that contains all the documents.
+     * @return The store, with documents named like the files clean() writes, e.g. "100.txt".
+     * @throws IOException If there's a problem reading the file.
+     */
+    static DocumentStore build(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(file, out);
+        return new DocumentStore(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * Builds a store from a Cranfield-formatted collection and writes it to a file that can be mapped with open().
+     * @param file The file that contains all the documents.
+     * @param storeFile The file to write.
+     * @throws IOException If there's a problem reading the collection or writing the store.
+     */
+    static void write(File file, File storeFile) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(storeFile))) {
+            write(file, out);
+        }
+    }
+
+    /**
+     * Maps a store file written by write().
+     * @param storeFile The store file.
+     * @return The store.
+     * @throws IOException If there's a problem mapping the file.
+     */
+    static DocumentStore open(File storeFile) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(storeFile, "r")) {
+            // The mapping stays valid after the file is closed.
+            return new DocumentStore(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+        }
+    }
+
+    /**
+     * Reads the documents out of a Cranfield-formatted collection, compresses them, and writes out the store.
+     * @param file The file that contains all the documents.
+     * @param stream Where to write the store.
+     * @throws IOException If there's a problem reading the collection or writing the store.
+     */
+    private static void write(File file, OutputStream stream) throws IOException {
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<String> texts = new ArrayList<>();
+        StringBuilder text = null;
+        boolean inAbstract = false;
+
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.startsWith(".I")) {
+                if (text != null)
+                    texts.add(text.toString());
+                names.add(line.replaceAll(".I ", "") + ".txt");
+                text = new StringBuilder();
+                inAbstract = false;
+            } else if (!inAbstract && line.startsWith(".W")) {
+                inAbstract = true;
+            } else if (inAbstract) {
+                text.append(line).append("\n");
+            }
+        }
+        br.close();
+        if (text != null)
+            texts.add(text.toString());
+
+        // Pack the documents into blocks in collection order, remembering where each one went.
+        Pattern wordPattern = Pattern.compile("[a-zA-Z]+");
+        int[] documentBlocks = new int[names.size()];
+        int[] documentOffsets = new int[names.size()];
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ArrayList<int[]> blocks = new ArrayList<>();
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+        for (int doc = 0; doc < names.size(); doc++) {
+            documentBlocks[doc] = blocks.size();
+            documentOffsets[doc] = block.size();
+
+            // Each entry is the text followed by its token offsets, all as variable-length integers.
+            byte[] textBytes = texts.get(doc).getBytes(StandardCharsets.UTF_8);
+            writeVarInt(block, textBytes.length);
+            block.write(textBytes, 0, textBytes.length);
+
+            ArrayList<Integer> tokens = new ArrayList<>();
+            Matcher matcher = wordPattern.matcher(texts.get(doc));
+            while (matcher.find()) {
+                tokens.add(matcher.start());
+                tokens.add(matcher.end());
+            }
+            writeVarInt(block, tokens.size() / 2);
+            int previous = 0;
+            for (int i = 0; i < tokens.size(); i += 2) {
+                writeVarInt(block, tokens.get(i) - previous);
+                writeVarInt(block, tokens.get(i + 1) - tokens.get(i));
+                previous = tokens.get(i);
+            }
+
+            if (block.size() >= BLOCK_SIZE || doc == names.size() - 1) {
+                blocks.add(compressBlock(deflater, block.toByteArray(), data));
+                block.reset();
+            }
+        }
+        deflater.end();
+
+        // The document table is sorted by name, since that's how it gets searched.
+        Integer[] order = new Integer[names.size()];
+        byte[][] nameBytes = new byte[names.size()][];
+        long stringsLength = 0;
+        for (int doc = 0; doc < names.size(); doc++) {
+            order[doc] = doc;
+            nameBytes[doc] = names.get(doc).getBytes(StandardCharsets.UTF_8);
+            stringsLength += nameBytes[doc].length;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(nameBytes[a], nameBytes[b]));
+
+        long blocksOffset = HEADER_SIZE;
+        long documentsOffset = blocksOffset + (long) blocks.size() * BLOCK_ENTRY_SIZE;
+        long stringsOffset = documentsOffset + (long) names.size() * DOCUMENT_ENTRY_SIZE;
+        long dataOffset = stringsOffset + stringsLength;
+        if (dataOffset + data.size() > Integer.MAX_VALUE)
+            throw new IOException("The document store would be over 2 GB.");
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(names.size());
+        out.writeInt(blocks.size());
+        out.writeInt((int) blocksOffset);
+        out.writeInt((int) documentsOffset);
+        out.writeInt((int) stringsOffset);
+        out.writeInt((int) dataOffset);
+        for (int[] entry : blocks) {
+            out.writeInt((int) dataOffset + entry[0]);
+            out.writeInt(entry[1]);
+            out.writeInt(entry[2]);
+        }
+        int stringPosition = (int) stringsOffset;
+        for (int doc : order) {
+            out.writeInt(stringPosition);
+            out.writeInt(nameBytes[doc].length);
+            out.writeInt(documentBlocks[doc]);
+            out.writeInt(documentOffsets[doc]);
+            stringPosition += nameBytes[doc].length;
+        }
+        for (int doc : order) {
+            out.write(nameBytes[doc]);
+        }
+        data.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Gets the number of bytes the compressed blocks take up.
+     * @return The compressed size.
+     */
+    int compressedSize() {
+        return bytes.capacity() - dataOffset;
+    }
+
+    /**
+     * Gets the number of bytes the blocks would take up uncompressed.
+     * @return The uncompressed size.
+     */
+    long uncompressedSize() {
+        long total = 0;
+        for (int block = 0; block < blockCount; block++) {
+            total += bytes.getInt(blocksOffset + block * BLOCK_ENTRY_SIZE + 8);
+        }
+        return total;
+    }
+
+    /**
+     * Fetches a document's text.
+     * @param name The document's name, e.g. "100.txt".
+     * @return The text, or null if there's no such document.
+     */
+    String getText(String name) {
+        Entry entry = read(name);
+        return entry == null ? null : entry.text;
+    }
+
+    /**
+     * Cuts out the part of a document that best matches a query: the run of tokens holding the most distinct query
+     * words. Query words in the snippet are wrapped in [brackets].
+     * @param name The document's name, e.g. "100.txt".
+     * @param queryTokens The normalized words in the query.
+     * @return The snippet, or null if there's no such document.
+     */
+    String getSnippet(String name, List<String> queryTokens) {
+        Entry entry = read(name);
+        if (entry == null)
+            return null;
+        int tokenCount = entry.starts.length;
+        if (tokenCount == 0)
+            return entry.text.trim();
+
+        // Mark which tokens are query words.
+        HashSet<String> query = new HashSet<>(queryTokens);
+        String[] words = new String[tokenCount];
+        boolean[] matches = new boolean[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            words[i] = entry.text.substring(entry.starts[i], entry.ends[i]).toLowerCase();
+            matches[i] = query.contains(words[i]);
+        }
+
+        // Slide a window across the tokens and keep the one with the most distinct query words in it.
+        int window = Math.min(SNIPPET_TOKENS, tokenCount);
+        int bestStart = 0;
+        int bestScore = -1;
+        HashMap<String, Integer> inWindow = new HashMap<>();
+        for (int end = 0; end < tokenCount; end++) {
+            if (matches[end])
+                inWindow.merge(words[end], 1, Integer::sum);
+            int start = end - window + 1;
+            if (start > 0 && matches[start - 1])
+                inWindow.computeIfPresent(words[start - 1], (key, count) -> count == 1 ? null : count - 1);
+            if (start >= 0 && inWindow.size() > bestScore) {
+                bestScore = inWindow.size();
+                bestStart = start;
+            }
+        }
+
+        // Rebuild the snippet from the original text, bracketing the query words.
+        int bestEnd = bestStart + window - 1;
+        StringBuilder snippet = new StringBuilder();
+        if (bestStart > 0)
+            snippet.append("...");
+        int position = entry.starts[bestStart];
+        for (int i = bestStart; i <= bestEnd; i++) {
+            snippet.append(entry.text, position, entry.starts[i]);
+            if (matches[i])
+                snippet.append('[').append(entry.text, entry.starts[i], entry.ends[i]).append(']');
+            else
+                snippet.append(entry.text, entry.starts[i], entry.ends[i]);
+            position = entry.ends[i];
+        }
+        if (bestEnd < tokenCount - 1)
+            snippet.append("...");
+        return snippet.toString().replaceAll("\\s+", " ").trim();
+    }
+
+    /**
+     * Decompresses the block a document is in and reads its entry.
+     * @param name The document's name.
+     * @return The document's text and token offsets, or null if there's no such document.
+     */
+    private Entry read(String name) {
+        int entryOffset = findDocument(name.getBytes(StandardCharsets.UTF_8));
+        if (entryOffset < 0)
+            return null;
+
+        int blockNumber = bytes.getInt(entryOffset + 8);
+        int blockEntry = blocksOffset + blockNumber * BLOCK_ENTRY_SIZE;
+        int blockStart = bytes.getInt(blockEntry);
+        byte[] block = new byte[bytes.getInt(blockEntry + 8)];
+        Inflater inflater = new Inflater();
+        inflater.setInput(bytes.duplicate().limit(blockStart + bytes.getInt(blockEntry + 4)).position(blockStart));
+        try {
+            int read = 0;
+            while (read < block.length && !inflater.finished()) {
+                read += inflater.inflate(block, read, block.length - read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Document store block " + blockNumber + " is corrupt.", e);
+        } finally {
+            inflater.end();
+        }
+
+        int[] position = {bytes.getInt(entryOffset + 12)};
+        int textLength = readVarInt(block, position);
+        String text = new String(block, position[0], textLength, StandardCharsets.UTF_8);
+        position[0] += textLength;
+
+        int tokenCount = readVarInt(block, position);
+        int[] starts = new int[tokenCount];
+        int[] ends = new int[tokenCount];
+        int previous = 0;
+        for (int i = 0; i < tokenCount; i++) {
+            starts[i] = previous + readVarInt(block, position);
+            ends[i] = starts[i] + readVarInt(block, position);
+            previous = starts[i];
+        }
+        return new Entry(text, starts, ends);
+    }
+
+    /**
+     * Binary searches the document table for a name.
+     * @param name The name's UTF-8 bytes.
+     * @return The offset of the document's entry, or -1 if there's no such document.
+     */
+    private int findDocument(byte[] name) {
+        int low = 0;
+        int high = documentCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entryOffset = documentsOffset + middle * DOCUMENT_ENTRY_SIZE;
+
+            // Compare the name against the one in the store byte by byte, without copying it out first.
+            int offset = bytes.getInt(entryOffset);
+            int length = bytes.getInt(entryOffset + 4);
+            int comparison = 0;
+            for (int i = 0; i < Math.min(length, name.length) && comparison == 0; i++) {
+                comparison = Integer.compare(bytes.get(offset + i) & 0xff, name[i] & 0xff);
+            }
+            if (comparison == 0)
+                comparison = Integer.compare(length, name.length);
+
+            if (comparison < 0)
+                low = middle + 1;
+            else if (comparison > 0)
+                high = middle - 1;
+            else
+                return entryOffset;
+        }
+        return -1;
+    }
+
+    /**
+     * Compresses a block and appends it to the others.
+     * @return The block's offset, compressed length, and uncompressed length.
+     */
+    private static int[] compressBlock(Deflater deflater, byte[] raw, ByteArrayOutputStream blocks) {
+        int offset = blocks.size();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, raw.length)];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            blocks.write(buffer, 0, length);
+        }
+        return new int[]{offset, blocks.size() - offset, raw.length};
+    }
+
+    /**
+     * Writes an int using 7 bits per byte, with the high bit set on every byte but the last. The same idea as
+     * Project Two's Variable Byte encoding, but the continuation bit is flipped.
+     */
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] bytes, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * A document's text along with the character offsets of each of its tokens.
+     */
+    private static class Entry {
+        final String text;
+        final int[] starts;
+        final int[] ends;
+
+        Entry(String text, int[] starts, int[] ends) {
+            this.text = text;
+            this.starts = starts;
+            this.ends = ends;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A tf-idf index where each term's postings are sorted by impact, the tf-idf the posting adds to a document's
+ * rating, instead of by document. Each list is split into a high-impact tier at the front and a tail tier behind it.
+ * <p>
+ * A search adds up the high tiers first. The tails are only read if the top k could still change: if the gap between
+ * the kth and (k+1)th best documents is already bigger than everything left in the tails could add, the tails are
+ * skipped. Common words like "the" have an idf near zero, so their tails are almost never worth reading. The
+ * documents that make the top k then have the skipped tail postings looked up, so they're rated and ordered exactly
+ * like a full search would.
+ * <p>
+ * The index can also be statically pruned: postings with an impact below a floor are dropped when the index is
+ * built, trading some quality for smaller lists.
+ */
+class ImpactIndex implements SearchIndex {
+    private final String[] names;
+    private final HashMap<String, ImpactPostings> postings = new HashMap<>();
+    private final int highTierSize;
+    private final double impactFloor;
+    private long postingCount = 0;
+    private long prunedCount = 0;
+    private final LongAdder tailsRead = new LongAdder();
+    private final LongAdder tailsSkipped = new LongAdder();
+
+    /**
+     * Builds the impact-sorted postings.
+     * @param documents Each document's name mapped to the term frequencies of the words in it, like
+     *                  ProjectThree's DOCUMENT_TERM_FREQUENCIES.
+     * @param highTierSize How many of each term's highest impact postings go in its high tier.
+     * @param impactFloor Postings with an impact below this are dropped. Postings with no impact at all are always
+     *                    dropped.
+     */
+    ImpactIndex(Map<String, ? extends Map<Term, Integer>> documents, int highTierSize, double impactFloor) {
+        if (highTierSize < 1)
+            throw new IllegalArgumentException("The high tier needs at least one posting, got " + highTierSize + ".");
+        this.highTierSize = highTierSize;
+        this.impactFloor = impactFloor;
+
+        // Number the documents and work out each term's document frequency.
+        names = documents.keySet().toArray(new String[0]);
+        HashMap<String, Integer> documentFrequencies = new HashMap<>();
+        for (Map<Term, Integer> terms : documents.values()) {
+            for (Term term : terms.keySet()) {
+                documentFrequencies.merge(term.toString(), 1, Integer::sum);
+            }
+        }
+
+        // Gather each term's postings along with their impact, idf * tf, dropping anything under the floor.
+        HashMap<String, ArrayList<double[]>> lists = new HashMap<>();
+        for (int doc = 0; doc < names.length; doc++) {
+            for (Map.Entry<Term, Integer> entry : documents.get(names[doc]).entrySet()) {
+                String term = entry.getKey().toString();
+                double idf = Math.log((double) names.length / documentFrequencies.get(term));
+                double impact = idf * entry.getValue();
+                if (impact > 0 && impact >= impactFloor)
+                    lists.computeIfAbsent(term, key -> new ArrayList<>()).add(new double[]{doc, impact});
+                else
+                    prunedCount++;
+            }
+        }
+
+        // Sort each list highest impact first and split it into tiers.
+        for (Map.Entry<String, ArrayList<double[]>> entry : lists.entrySet()) {
+            ArrayList<double[]> list = entry.getValue();
+            list.sort((a, b) -> Double.compare(b[1], a[1]));
+            postings.put(entry.getKey(), new ImpactPostings(list, Math.min(highTierSize, list.size())));
+            postingCount += list.size();
+        }
+    }
+
+    /**
+     * Gets the number of postings kept after pruning.
+     * @return The number of postings in the index.
+     */
+    long postingCount() {
+        return postingCount;
+    }
+
+    /**
+     * Gets the number of postings dropped by the impact floor.
+     * @return The number of pruned postings.
+     */
+    long prunedCount() {
+        return prunedCount;
+    }
+
+    @Override
+    public List<ScoredDocument> searchAfter(List<String> tokens, ScoredDocument after, int k) {
+        // A word that shows up twice in the query counts twice, so fold repeats into the word's weight.
+        LinkedHashMap<ImpactPostings, Integer> counts = new LinkedHashMap<>();
+        for (String token : tokens) {
+            ImpactPostings list = postings.get(token);
+            if (list != null)
+                counts.merge(list, 1, Integer::sum);
+        }
+
+        double[] ratings = new double[names.length];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+
+        // Add up the high tiers, keeping track of which documents have picked up a rating.
+        for (Map.Entry<ImpactPostings, Integer> entry : counts.entrySet()) {
+            ImpactPostings list = entry.getKey();
+            for (int i = 0; i < list.highTierEnd; i++) {
+                int doc = list.docs[i];
+                if (ratings[doc] == 0) {
+                    if (touchedCount == touched.length)
+                        touched = Arrays.copyOf(touched, touched.length * 2);
+                    touched[touchedCount++] = doc;
+                }
+                ratings[doc] += list.impacts[i] * entry.getValue();
+            }
+        }
+
+        // The most the tails could still add to any one document. The first posting in a tail has the highest impact
+        // in it, so this is a safe upper bound.
+        ArrayList<Map.Entry<ImpactPostings, Integer>> tails = new ArrayList<>();
+        double tailBound = 0;
+        for (Map.Entry<ImpactPostings, Integer> entry : counts.entrySet()) {
+            if (entry.getKey().hasTail()) {
+                tails.add(entry);
+                tailBound += entry.getKey().tailMax() * entry.getValue();
+            }
+        }
+
+        // Keep the best k + 1 ratings up to date as the tails are read, so checking whether the top k is settled
+        // never has to look at every document again.
+        Leaders leaders = new Leaders(k + 1);
+        for (int i = 0; i < touchedCount; i++) {
+            leaders.update(touched[i], ratings[touched[i]]);
+        }
+
+        // Read the tails with the most to add first, and stop as soon as the rest can't change which documents make
+        // the top k. The bound only drops once a whole tail has been read, so that's the only time to check. When
+        // we're after a later page, every tail gets read: a tail could still move a document from one side of the
+        // cursor to the other.
+        tails.sort((a, b) -> Double.compare(b.getKey().tailMax() * b.getValue(),
+                a.getKey().tailMax() * a.getValue()));
+        int tailsRead = 0;
+        while (tailsRead < tails.size() && (after != null || k <= 0 || leaders.gap(k) <= tailBound)) {
+            Map.Entry<ImpactPostings, Integer> entry = tails.get(tailsRead);
+            ImpactPostings list = entry.getKey();
+            for (int i = list.highTierEnd; i < list.docs.length; i++) {
+                int doc = list.docs[i];
+                if (ratings[doc] == 0) {
+                    if (touchedCount == touched.length)
+                        touched = Arrays.copyOf(touched, touched.length * 2);
+                    touched[touchedCount++] = doc;
+                }
+                ratings[doc] += list.impacts[i] * entry.getValue();
+                leaders.update(doc, ratings[doc]);
+            }
+            tailBound -= list.tailMax() * entry.getValue();
+            tailsRead++;
+        }
+        this.tailsRead.add(tailsRead);
+        tailsSkipped.add(tails.size() - tailsRead);
+
+        ScoredDocument.TopK topK = new ScoredDocument.TopK(k, after);
+        if (tailsRead == tails.size()) {
+            // Every rating is complete.
+            for (int i = 0; i < touchedCount; i++) {
+                int doc = touched[i];
+                if (ratings[doc] > 0 && ratings[doc] >= topK.threshold())
+                    topK.offer(new ScoredDocument(names[doc], ratings[doc]));
+            }
+        } else {
+            // The top k can't change anymore, but their ratings are still missing whatever the unread tails would
+            // add. Look those postings up so the documents come out in the same order as a full search.
+            for (int leader = 0; leader < k; leader++) {
+                int doc = leaders.docs[leader];
+                if (doc < 0 || ratings[doc] <= 0)
+                    continue;
+                double rating = ratings[doc];
+                for (int t = tailsRead; t < tails.size(); t++) {
+                    rating += tails.get(t).getKey().tailImpact(doc) * tails.get(t).getValue();
+                }
+                topK.offer(new ScoredDocument(names[doc], rating));
+            }
+        }
+        return topK.toList();
+    }
+
+    /**
+     * Gets how many query terms have had their tails read.
+     * @return The number of tails read across every search so far.
+     */
+    long tailsRead() {
+        return tailsRead.sum();
+    }
+
+    /**
+     * Gets how many query terms had their tails skipped because the top k was already settled.
+     * @return The number of tails skipped across every search so far.
+     */
+    long tailsSkipped() {
+        return tailsSkipped.sum();
+    }
+
+    /**
+     * Adds the tail counts to the metrics summary. Counting them there on every search meant a lookup in the metrics
+     * map each time, which cost more than the tails it was counting.
+     */
+    @Override
+    public void close() {
+        Metrics.count("impact.tailsRead", tailsRead.sum());
+        Metrics.count("impact.tailsSkipped", tailsSkipped.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "impact(tier=" + highTierSize + ", floor=" + impactFloor + ")";
+    }
+
+    /**
+     * A term's postings, highest impact first.
+     */
+    private static class ImpactPostings {
+        final int[] docs;
+        final double[] impacts;
+        final int highTierEnd;
+
+        // The tail again, sorted by document, so a skipped tail can still be checked for one document.
+        private final int[] tailDocs;
+        private final double[] tailImpacts;
+
+        ImpactPostings(List<double[]> list, int highTierEnd) {
+            docs = new int[list.size()];
+            impacts = new double[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                docs[i] = (int) list.get(i)[0];
+                impacts[i] = list.get(i)[1];
+            }
+            this.highTierEnd = highTierEnd;
+
+            List<double[]> tail = new ArrayList<>(list.subList(highTierEnd, list.size()));
+            tail.sort((a, b) -> Double.compare(a[0], b[0]));
+            tailDocs = new int[tail.size()];
+            tailImpacts = new double[tail.size()];
+            for (int i = 0; i < tail.size(); i++) {
+                tailDocs[i] = (int) tail.get(i)[0];
+                tailImpacts[i] = tail.get(i)[1];
+            }
+        }
+
+        boolean hasTail() {
+            return highTierEnd < docs.length;
+        }
+
+        double tailMax() {
+            return hasTail() ? impacts[highTierEnd] : 0;
+        }
+
+        /**
+         * Finds a document's posting in the tail.
+         * @param doc The document's number.
+         * @return The posting's impact, or 0 if the document isn't in the tail.
+         */
+        double tailImpact(int doc) {
+            int i = Arrays.binarySearch(tailDocs, doc);
+            return i < 0 ? 0 : tailImpacts[i];
+        }
+    }
+
+    /**
+     * The best few documents rated so far, best first, kept up to date as ratings go up. Ratings only ever go up
+     * during a search, so a document that isn't in the list can only get in by passing the last one.
+     */
+    private static class Leaders {
+        // Unused slots have a document of -1 and a rating of 0, the same as a document nothing has been added to.
+        final int[] docs;
+        final double[] ratings;
+
+        Leaders(int size) {
+            docs = new int[size];
+            ratings = new double[size];
+            Arrays.fill(docs, -1);
+        }
+
+        /**
+         * Records a document's new rating.
+         * @param doc The document's number.
+         * @param rating Its rating so far, which can't be lower than the last one recorded for it.
+         */
+        void update(int doc, double rating) {
+            int last = docs.length - 1;
+            if (rating <= ratings[last])
+                return;
+
+            // Find the document if it's already in the list, otherwise bump the last one out.
+            int i = 0;
+            while (i < last && docs[i] != doc) {
+                i++;
+            }
+            while (i > 0 && ratings[i - 1] < rating) {
+                docs[i] = docs[i - 1];
+                ratings[i] = ratings[i - 1];
+                i--;
+            }
+            docs[i] = doc;
+            ratings[i] = rating;
+        }
+
+        /**
+         * Gets how far the kth best rating is ahead of the (k+1)th.
+         * @param k The number of documents being returned, one less than the list's size.
+         * @return The gap.
+         */
+        double gap(int k) {
+            return ratings[k - 1] - ratings[k];
+        }
+    }
+}
@@ -0,0 +1,145 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A high-resolution histogram that any number of threads can record into at once. It's meant for latencies in
+ * nanoseconds, but any non-negative count works.
+ * Values are kept in log-linear buckets: every power of two is split into 1024 equal buckets, so any recorded value
+ * is off by at most about 0.1% no matter how big it is, while the whole histogram stays a fixed size.
+ * <p>
+ * All the buckets together would take about 250 KB, but most histograms only ever see a narrow range of values. The
+ * buckets are split into chunks of 256 that are only allocated once a value lands in them, so a histogram of query
+ * lengths costs 2 KB and a timer only pays for the powers of two its latencies actually span.
+ */
+class LatencyHistogram {
+    // Values below 2^SUB_BUCKET_BITS get a bucket each. Past that, each power of two gets HALF_COUNT buckets.
+    private static final int SUB_BUCKET_BITS = 11;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    // Anything longer than about 18 minutes gets clamped. No single query should ever take that long.
+    private static final long HIGHEST_TRACKABLE = (1L << 40) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(HIGHEST_TRACKABLE) + 1;
+
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    // Chunk i holds the counts for buckets i * CHUNK_SIZE up to (i + 1) * CHUNK_SIZE, or is null if none of them
+    // have been recorded into yet.
+    private final AtomicReferenceArray<AtomicLongArray> chunks =
+            new AtomicReferenceArray<>((BUCKET_COUNT + CHUNK_SIZE - 1) >> CHUNK_BITS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a single latency.
+     * @param nanos The latency in nanoseconds.
+     */
+    void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE);
+        int index = bucketIndex(value);
+        chunk(index >> CHUNK_BITS).incrementAndGet(index & (CHUNK_SIZE - 1));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Gets the number of values recorded so far.
+     * @return The number of recorded values.
+     */
+    long count() {
+        return totalCount.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     * @return The mean latency in nanoseconds.
+     */
+    double mean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalNanos.get() / count;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     * @return The max latency in nanoseconds.
+     */
+    long max() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Gets the value at a given percentile.
+     * @param percentile The percentile to look up, e.g. 99.9.
+     * @return The highest latency in nanoseconds that falls in the same bucket as the value at the percentile.
+     */
+    long percentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0)
+            return 0;
+
+        // Walk the buckets in order until we've passed the requested fraction of all the values.
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int c = 0; c < chunks.length(); c++) {
+            AtomicLongArray chunk = chunks.get(c);
+            if (chunk == null)
+                continue;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                seen += chunk.get(i);
+                if (seen >= target)
+                    return Math.min(highestEquivalentValue((c << CHUNK_BITS) + i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Gets a chunk of buckets, allocating it if nothing has been recorded into it yet.
+     * @param index The chunk's index.
+     * @return The chunk.
+     */
+    private AtomicLongArray chunk(int index) {
+        AtomicLongArray chunk = chunks.get(index);
+        if (chunk == null) {
+            // If another thread gets there first, use its chunk and let ours be thrown away.
+            chunks.compareAndSet(index, null, new AtomicLongArray(CHUNK_SIZE));
+            chunk = chunks.get(index);
+        }
+        return chunk;
+    }
+
+    /**
+     * Finds which bucket a value belongs in.
+     * @param value The value, which can't be negative.
+     * @return The index of the value's bucket.
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        // Shift the value down until it lands in the top half of the sub-buckets. The number of shifts tells us
+        // which power of two we're in, and what's left tells us where in that power of two we are.
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Finds the largest value that would land in a given bucket.
+     * @param index The index of the bucket.
+     * @return The largest value in the bucket.
+     */
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = index / HALF_COUNT - 1;
+        long subBucket = index - (long) shift * HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,276 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A tf-idf index that lives in a file instead of on the heap. The file is memory-mapped, so the operating system
+ * pages postings in and out as they're needed, and searches read them straight out of the mapping without copying
+ * them into Java objects. The heap only ever holds one small object per query term, no matter how big the
+ * collection is.
+ * <p>
+ * File layout, with every section starting on an 8 byte boundary:
+ * <pre>
+ *   header      magic, version, document count, term count, and the offset of each section below
+ *   names       one (string offset, length) pair per document, in document order
+ *   dictionary  one (string offset, length, df, postings offset) entry per term, sorted by term
+ *   postings    for each term, df pairs of (document number, tf), sorted by document number
+ *   strings     the UTF-8 bytes of every document name and term
+ * </pre>
+ */
+class MappedIndex implements SearchIndex {
+    private static final int MAGIC = 0x43534349;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int NAME_ENTRY_SIZE = 16;
+    private static final int DICTIONARY_ENTRY_SIZE = 24;
+    private static final int POSTING_SIZE = 8;
+
+    private final MappedFile file;
+    private final int docCount;
+    private final int termCount;
+    private final long namesOffset;
+    private final long dictionaryOffset;
+
+    private MappedIndex(MappedFile file) {
+        this.file = file;
+        if (file.getInt(0) != MAGIC || file.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Not a version " + VERSION + " mapped index.");
+        docCount = file.getInt(8);
+        termCount = file.getInt(12);
+        namesOffset = file.getLong(16);
+        dictionaryOffset = file.getLong(24);
+    }
+
+    /**
+     * Maps an index file written by write().
+     * @param indexFile The index file.
+     * @return The index.
+     * @throws IOException If there's a problem mapping the file.
+     */
+    static MappedIndex open(File indexFile) throws IOException {
+        return new MappedIndex(new MappedFile(indexFile));
+    }
+
+    /**
+     * Writes a collection's term frequencies out as a mapped index file.
+     * @param documents Each document's name mapped to the term frequencies of the words in it, like
+     *                  ProjectThree's DOCUMENT_TERM_FREQUENCIES.
+     * @param indexFile The file to write.
+     * @throws IOException If there's a problem writing the file.
+     */
+    static void write(Map<String, ? extends Map<Term, Integer>> documents, File indexFile) throws IOException {
+        // Number the documents and gather each term's postings. Terms are sorted by their UTF-8 bytes, since that's
+        // how the dictionary gets searched.
+        List<String> names = new ArrayList<>(documents.keySet());
+        HashMap<String, ArrayList<int[]>> postings = new HashMap<>();
+        for (int doc = 0; doc < names.size(); doc++) {
+            for (Map.Entry<Term, Integer> entry : documents.get(names.get(doc)).entrySet()) {
+                postings.computeIfAbsent(entry.getKey().toString(), key -> new ArrayList<>())
+                        .add(new int[]{doc, entry.getValue()});
+            }
+        }
+        byte[][] terms = new byte[postings.size()][];
+        int t = 0;
+        for (String term : postings.keySet()) {
+            terms[t++] = term.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(terms, Arrays::compareUnsigned);
+
+        // Work out where each section starts.
+        long totalPostings = 0;
+        for (ArrayList<int[]> list : postings.values()) {
+            totalPostings += list.size();
+        }
+        long namesOffset = HEADER_SIZE;
+        long dictionaryOffset = namesOffset + (long) names.size() * NAME_ENTRY_SIZE;
+        long postingsOffset = dictionaryOffset + (long) terms.length * DICTIONARY_ENTRY_SIZE;
+        long stringsOffset = postingsOffset + totalPostings * POSTING_SIZE;
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(names.size());
+        out.writeInt(terms.length);
+        out.writeLong(namesOffset);
+        out.writeLong(dictionaryOffset);
+        out.writeLong(postingsOffset);
+        out.writeLong(stringsOffset);
+
+        // Document names go first in the strings section, then the terms.
+        long stringPosition = stringsOffset;
+        ArrayList<byte[]> strings = new ArrayList<>();
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.writeLong(stringPosition);
+            out.writeInt(bytes.length);
+            out.writeInt(0);
+            strings.add(bytes);
+            stringPosition += bytes.length;
+        }
+
+        long postingPosition = postingsOffset;
+        for (byte[] term : terms) {
+            int df = postings.get(new String(term, StandardCharsets.UTF_8)).size();
+            out.writeLong(stringPosition);
+            out.writeInt(term.length);
+            out.writeInt(df);
+            out.writeLong(postingPosition);
+            strings.add(term);
+            stringPosition += term.length;
+            postingPosition += (long) df * POSTING_SIZE;
+        }
+
+        // The documents were numbered in order, so each postings list is already sorted by document number.
+        for (byte[] term : terms) {
+            for (int[] posting : postings.get(new String(term, StandardCharsets.UTF_8))) {
+                out.writeInt(posting[0]);
+                out.writeInt(posting[1]);
+            }
+        }
+
+        for (byte[] string : strings) {
+            out.write(string);
+        }
+        out.close();
+    }
+
+    /**
+     * Gets the number of documents in the index.
+     * @return The number of documents.
+     */
+    int documentCount() {
+        return docCount;
+    }
+
+    /**
+     * Reads every term in the dictionary along with its document frequency.
+     * @return Each term mapped to its document frequency.
+     */
+    HashMap<String, Integer> documentFrequencies() {
+        HashMap<String, Integer> documentFrequencies = new HashMap<>();
+        for (int i = 0; i < termCount; i++) {
+            long entryOffset = dictionaryOffset + (long) i * DICTIONARY_ENTRY_SIZE;
+            documentFrequencies.put(file.getString(file.getLong(entryOffset), file.getInt(entryOffset + 8)),
+                    file.getInt(entryOffset + 12));
+        }
+        return documentFrequencies;
+    }
+
+    @Override
+    public List<ScoredDocument> searchAfter(List<String> tokens, ScoredDocument after, int k) {
+        // A word that shows up twice in the query counts twice, so fold repeats into the word's weight.
+        LinkedHashMap<String, Integer> counts = new LinkedHashMap<>();
+        for (String token : tokens) {
+            counts.merge(token, 1, Integer::sum);
+        }
+
+        // Find each word's postings and give it a cursor.
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>((a, b) -> Integer.compare(a.doc, b.doc));
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            long entryOffset = findTerm(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            if (entryOffset < 0)
+                continue;
+            int df = file.getInt(entryOffset + 12);
+            double idf = Math.log((double) docCount / df);
+            if (idf > 0)
+                cursors.add(new Cursor(file, file.getLong(entryOffset + 16), df, idf * entry.getValue()));
+        }
+
+        // Walk all the postings lists together in document order, rating one document at a time. This way we never
+        // need an array with a slot for every document.
+        ScoredDocument.TopK topK = new ScoredDocument.TopK(k, after);
+        while (!cursors.isEmpty()) {
+            int doc = cursors.peek().doc;
+            double rating = 0;
+            while (!cursors.isEmpty() && cursors.peek().doc == doc) {
+                Cursor cursor = cursors.poll();
+                rating += cursor.weight * cursor.tf;
+                if (cursor.next())
+                    cursors.add(cursor);
+            }
+
+            // Only decode the document's name if it has a chance of making the cut.
+            if (rating > 0 && rating >= topK.threshold())
+                topK.offer(new ScoredDocument(documentName(doc), rating));
+        }
+        return topK.toList();
+    }
+
+    /**
+     * Binary searches the dictionary for a term.
+     * @param term The term's UTF-8 bytes.
+     * @return The offset of the term's dictionary entry, or -1 if the term isn't in the index.
+     */
+    private long findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long entryOffset = dictionaryOffset + (long) middle * DICTIONARY_ENTRY_SIZE;
+            int comparison = file.compareString(file.getLong(entryOffset), file.getInt(entryOffset + 8), term);
+            if (comparison < 0)
+                low = middle + 1;
+            else if (comparison > 0)
+                high = middle - 1;
+            else
+                return entryOffset;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a document's name out of the file.
+     * @param doc The document's number.
+     * @return The document's name.
+     */
+    private String documentName(int doc) {
+        long entryOffset = namesOffset + (long) doc * NAME_ENTRY_SIZE;
+        return file.getString(file.getLong(entryOffset), file.getInt(entryOffset + 8));
+    }
+
+    /**
+     * Steps through one term's postings in the mapped file.
+     */
+    private static class Cursor {
+        private final MappedFile file;
+        private final long end;
+        private final double weight;
+        private long position;
+        private int doc;
+        private int tf;
+
+        Cursor(MappedFile file, long start, int df, double weight) {
+            this.file = file;
+            this.position = start;
+            this.end = start + (long) df * POSTING_SIZE;
+            this.weight = weight;
+            next();
+        }
+
+        /**
+         * Moves to the next posting.
+         * @return False if there are no postings left.
+         */
+        boolean next() {
+            if (position >= end)
+                return false;
+            doc = file.getInt(position);
+            tf = file.getInt(position + 4);
+            position += POSTING_SIZE;
+            return true;
+        }
+    }
+}
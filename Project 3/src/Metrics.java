@@ -0,0 +1,139 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of counters, timers, and histograms for the search engine, so we can see where the time goes.
+ * Every phase that's timed also emits a Java Flight Recorder event. Run with -XX:StartFlightRecording to line the
+ * phases up against GC and allocation activity in JDK Mission Control.
+ */
+class Metrics {
+
+    // The maps are sorted so the summary table comes out in a stable order.
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, LatencyHistogram> TIMERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds to a counter, creating it if it doesn't exist yet.
+     * @param name The counter's name.
+     * @param amount How much to add.
+     */
+    static void count(String name, long amount) {
+        COUNTERS.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Records how long something took.
+     * @param name The timer's name.
+     * @param nanos The time it took in nanoseconds.
+     */
+    static void time(String name, long nanos) {
+        TIMERS.computeIfAbsent(name, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Records a value in a histogram, e.g. the number of words in a query.
+     * @param name The histogram's name.
+     * @param value The value.
+     */
+    static void record(String name, long value) {
+        HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram()).record(value);
+    }
+
+    /**
+     * Starts timing a phase. Use it with try-with-resources so the phase is stopped even if it throws. The block
+     * never has to touch the phase, so callers add @SuppressWarnings("try") to keep -Xlint quiet about it.
+     * @param name The phase's name.
+     * @return The running phase.
+     */
+    static Phase startPhase(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Prints the summary table once the program exits, however it exits.
+     */
+    static void printSummaryAtShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> printSummary(System.out)));
+    }
+
+    /**
+     * Prints every counter, timer, and histogram recorded so far.
+     * @param out Where to print the table.
+     */
+    static void printSummary(PrintStream out) {
+        out.println();
+        out.printf("%-28s %10s %12s %10s %10s %10s %10s %10s%n",
+                "timer", "count", "total ms", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, LatencyHistogram> entry : TIMERS.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            out.printf("%-28s %10d %12.1f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    entry.getKey(), h.count(), h.mean() * h.count() / 1e6, h.mean() / 1e6,
+                    h.percentile(50) / 1e6, h.percentile(95) / 1e6, h.percentile(99) / 1e6, h.max() / 1e6);
+        }
+
+        if (!HISTOGRAMS.isEmpty()) {
+            out.println();
+            out.printf("%-28s %10s %12s %10s %10s %10s %10s%n",
+                    "histogram", "count", "mean", "p50", "p95", "p99", "max");
+            for (Map.Entry<String, LatencyHistogram> entry : HISTOGRAMS.entrySet()) {
+                LatencyHistogram h = entry.getValue();
+                out.printf("%-28s %10d %12.2f %10d %10d %10d %10d%n", entry.getKey(), h.count(), h.mean(),
+                        h.percentile(50), h.percentile(95), h.percentile(99), h.max());
+            }
+        }
+
+        if (!COUNTERS.isEmpty()) {
+            out.println();
+            out.printf("%-28s %10s%n", "counter", "value");
+            for (Map.Entry<String, LongAdder> entry : COUNTERS.entrySet()) {
+                out.printf("%-28s %10d%n", entry.getKey(), entry.getValue().sum());
+            }
+        }
+    }
+
+    /**
+     * A phase of the program that's being timed. Closing it records the time and commits its JFR event.
+     */
+    static class Phase implements AutoCloseable {
+        private final String name;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long start;
+
+        private Phase(String name) {
+            this.name = name;
+            event.phase = name;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            time("phase." + name, System.nanoTime() - start);
+            event.commit();
+        }
+    }
+}
+
+/**
+ * JFR event covering one phase of building the index or evaluating it.
+ */
+@Name("csci4130.Phase")
+@Label("Phase")
+@Category({"CSCI 4130", "Project Three"})
+@Description("One phase of the tf-idf pipeline, e.g. clean or getDocumentFrequencies.")
+class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+}
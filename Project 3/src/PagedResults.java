@@ -0,0 +1,48 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Goes through every result for a query, best first, a page at a time. Only the current page is held in memory, and
+ * the next one isn't searched for until it's needed, so stopping early costs nothing.
+ */
+class PagedResults implements Iterator<ScoredDocument> {
+    private final SearchIndex index;
+    private final List<String> tokens;
+    private final int pageSize;
+    private SearchPage page;
+    private int position = 0;
+
+    /**
+     * @param index The index.
+     * @param tokens The normalized words in the query.
+     * @param pageSize How many documents to fetch at a time.
+     */
+    PagedResults(SearchIndex index, List<String> tokens, int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("Pages need at least one document, not " + pageSize + ".");
+        this.index = index;
+        this.tokens = tokens;
+        this.pageSize = pageSize;
+        this.page = SearchPage.fetch(index, tokens, null, pageSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (position == page.results.size() && page.nextCursor != null) {
+            page = SearchPage.fetch(index, tokens, page.nextCursor, pageSize);
+            position = 0;
+        }
+        return position < page.results.size();
+    }
+
+    @Override
+    public ScoredDocument next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return page.results.get(position++);
+    }
+}
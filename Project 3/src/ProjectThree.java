@@ -19,7 +19,33 @@ public class ProjectThree {
     // We'll use the system's temp directory to hold the folders for query and document processing.
     private static final File TEMP_DIRECTORY = new File((System.getProperty("java.io.tmpdir")));
 
+    // If this is set, searches go to this index instead of scanning DOCUMENT_TERM_FREQUENCIES.
+    private static SearchIndex searchIndex = null;
+
+    // Compressed copy of every abstract, used to show snippets with the search results.
+    private static DocumentStore documentStore = null;
+
+    // Sorted list of the terms, used to correct misspelled query words. Null if spelling correction is off.
+    private static TermDictionary termDictionary = null;
+    private static int maxEdits = 2;
+
+    // The most terms a misspelled query word is expanded to.
+    private static final int MAX_EXPANSIONS = 3;
+
+    // Only built if something asks for a page of results while searchIndex is null.
+    private static SearchIndex pagingIndex = null;
+
+    @SuppressWarnings("try")
     public static void main(String[] args) {
+        // Print how long each phase took once we're done, even if the user exits early.
+        Metrics.printSummaryAtShutdown();
+
+        // Options are given as --name=value, e.g. --shards=4 to search with a sharded index, or --mapped=cran.idx to
+        // search a memory-mapped index file. --impact-tier=50 and --impact-floor=1.5 search impact-sorted postings.
+        // --fuzzy=1 allows only one edit when matching misspelled query words, and --fuzzy=0 turns it off.
+        // --quantized=8 searches postings with 8-bit weights, and --kernel=scalar keeps it off the Vector API.
+        HashMap<String, String> options = parseOptions(args);
+
         // Create temporary folders for the queries and documents.
         // The folder's will be stored as subdirectories in the system's temp folder.
         // For some reason, when we execute mkdirs() to create the folders, we have to assign the result to a boolean
@@ -30,26 +56,41 @@ public class ProjectThree {
         File corpusFolder = new File(TEMP_DIRECTORY.getAbsolutePath() +  "/corpus");
         temp =  corpusFolder.exists() || corpusFolder.mkdirs();
 
-        // Extract all the documents out of the Cranfield collection into individual files for easier processing.
-        // These files will be stored in {temp}/corpus
+        // Build the tf-idf index out of the Cranfield collection.
         String corpusFileName = "cran-1.all.1400";
         File corpusFile = new File(corpusFileName);
-        clean(corpusFile, corpusFolder);
-
-        // Build a list containing each document, the terms in the document, and the term frequency of each term.
-        getTermFrequencies(corpusFolder);
-
-        // Build a list containing each term found across all documents, and their document frequency.
-        getDocumentFrequencies();
+        if (options.containsKey("mapped")) {
+            useMappedIndex(corpusFile, corpusFolder, new File(options.get("mapped")));
+        } else {
+            buildIndex(corpusFile, corpusFolder);
+
+            // Split the index into shards if we were asked to.
+            if (options.containsKey("shards"))
+                useShardedIndex(Integer.parseInt(options.get("shards")));
+            else if (options.containsKey("impact-tier") || options.containsKey("impact-floor"))
+                useImpactIndex(Integer.parseInt(options.getOrDefault("impact-tier", "50")),
+                        Double.parseDouble(options.getOrDefault("impact-floor", "0")));
+            else if (options.containsKey("quantized"))
+                useQuantizedIndex(Integer.parseInt(options.get("quantized")),
+                        ScoreKernel.named(options.getOrDefault("kernel", "best")));
+
+            // Keep a compressed copy of the abstracts so we can show snippets from them. A mapped index maps its
+            // own copy from the file next to it instead.
+            buildDocumentStore(corpusFile);
+        }
 
-        // Calculate the tf-idf score for each term.
-        getTFIDF();
+        // Sort the terms so misspelled query words can be matched to the closest ones.
+        int fuzzy = Integer.parseInt(options.getOrDefault("fuzzy", "2"));
+        if (fuzzy > 0)
+            useTermDictionary(fuzzy);
 
         // We'll section out the Cranfield queries and trim them like we did the documents for ease of processing.
         // These files will be stored in {temp}/queries
         String queriesFileName = "cran.qry";
         File queriesFile = new File(queriesFileName);
-        clean(queriesFile, queriesFolder);
+        try (Metrics.Phase phase = Metrics.startPhase("clean.queries")) {
+            clean(queriesFile, queriesFolder);
+        }
 
         // Create a folder to hold the ratings for each query.
         File ratingsFolder = new File("ratings");
@@ -57,44 +98,46 @@ public class ProjectThree {
 
         // Now we'll execute the queries and determine which of the documents are most relevant.
         // Iterate through each query in the queries' folder.
-        for (File file : Objects.requireNonNull(queriesFolder.listFiles())) {
-
-            try {
-                // A TreeMap will sort our ratings for us as we go. For this to work, we have to hold the rating in the
-                // key field.
-                TreeMap<Double, ArrayList<String>> ratings = new TreeMap<>();
-
-                // Create a file to hold the ratings for the query.
-                File ratingFile = new File(ratingsFolder.getAbsolutePath() + "/" + file.getName());
-                if (ratingFile.exists()) {
-                    temp = ratingFile.delete();
-                }
-                temp = ratingFile.createNewFile();
-
-                // Construct the query into a string
-                StringBuilder sb = new StringBuilder();
-                BufferedReader br = new BufferedReader(new FileReader(file));
-                String line;
-                while ((line = br.readLine()) != null) {
-                    sb.append(line).append(" ");
-                }
+        try (Metrics.Phase phase = Metrics.startPhase("queries")) {
+            for (File file : Objects.requireNonNull(queriesFolder.listFiles())) {
+
+                try {
+                    // A TreeMap will sort our ratings for us as we go. For this to work, we have to hold the rating in
+                    // the key field.
+                    TreeMap<Double, ArrayList<String>> ratings = new TreeMap<>();
+
+                    // Create a file to hold the ratings for the query.
+                    File ratingFile = new File(ratingsFolder.getAbsolutePath() + "/" + file.getName());
+                    if (ratingFile.exists()) {
+                        temp = ratingFile.delete();
+                    }
+                    temp = ratingFile.createNewFile();
+
+                    // Construct the query into a string
+                    StringBuilder sb = new StringBuilder();
+                    BufferedReader br = new BufferedReader(new FileReader(file));
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        sb.append(line).append(" ");
+                    }
 
-                // Get the results.
-                TreeMap<Double, String> results = search(sb.toString());
+                    // Get the results.
+                    TreeMap<Double, String> results = search(sb.toString());
 
-                // Write all the query's relevant document results to the ratings file.
-                FileWriter fw = new FileWriter(ratingFile, true);
-                for (Map.Entry<Double, String> entry : results.entrySet()) {
-                    fw.write(entry.getValue() + " " + entry.getKey() + "\n");
+                    // Write all the query's relevant document results to the ratings file.
+                    FileWriter fw = new FileWriter(ratingFile, true);
+                    for (Map.Entry<Double, String> entry : results.entrySet()) {
+                        fw.write(entry.getValue() + " " + entry.getKey() + "\n");
+                    }
+                    fw.close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
                 }
-                fw.close();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
             }
         }
 
         // Get and print the MAP of the system.
-        try {
+        try (Metrics.Phase phase = Metrics.startPhase("getMAP")) {
             double MAP = getMAP(ratingsFolder, new File("cranqrel"));
              System.out.print("MAP: " + MAP);
             if (MAP == 0.0)
@@ -114,8 +157,16 @@ public class ProjectThree {
             if (query.toLowerCase().trim().equals("quit"))
                 System.out.println("Goodbye.");
             else {
+                // If any of the words were corrected, show the user what we searched for instead.
+                ArrayList<String> tokens = normalizeIntoArray(query);
+                ArrayList<String> corrected = correctSpelling(tokens);
+                if (!corrected.equals(tokens)) {
+                    query = String.join(" ", corrected);
+                    System.out.println("Did you mean: " + query + "?");
+                }
+
                 TreeMap<Double, String> results = search(query);
-                if (results.size() == 1)
+                if (results.isEmpty() || results.lastKey() == 0)
                     System.out.println("No relevant documents.");
                 else {
                     System.out.println("Relevant documents: ");
@@ -123,25 +174,399 @@ public class ProjectThree {
                         Map.Entry<Double, String> entry = results.pollLastEntry();
                         if (entry.getKey() != 0) {
                             System.out.println(entry.getValue() + "\t tf-idf rating: " + entry.getKey());
+                            String snippet = getSnippet(entry.getValue(), query);
+                            if (snippet != null)
+                                System.out.println("\t" + snippet);
                         }
                     }
                 }
             }
         }
 
+        closeSearchIndex();
         queriesFolder.deleteOnExit();
         corpusFolder.deleteOnExit();
     }
 
     /**
-     * Search the documents.
+     * Builds the tf-idf index for a Cranfield-formatted collection.
+     * @param corpusFile The file that contains all the documents.
+     * @param corpusFolder The folder to extract the individual documents into.
+     */
+    @SuppressWarnings("try")
+    static void buildIndex(File corpusFile, File corpusFolder) {
+        // Extract all the documents out of the Cranfield collection into individual files for easier processing.
+        try (Metrics.Phase phase = Metrics.startPhase("clean.corpus")) {
+            clean(corpusFile, corpusFolder);
+        }
+
+        // Build a list containing each document, the terms in the document, and the term frequency of each term.
+        try (Metrics.Phase phase = Metrics.startPhase("getTermFrequencies")) {
+            getTermFrequencies(corpusFolder);
+        }
+
+        // Build a list containing each term found across all documents, and their document frequency.
+        try (Metrics.Phase phase = Metrics.startPhase("getDocumentFrequencies")) {
+            getDocumentFrequencies();
+        }
+
+        // Calculate the tf-idf score for each term.
+        try (Metrics.Phase phase = Metrics.startPhase("getTFIDF")) {
+            getTFIDF();
+        }
+
+        Metrics.count("index.documents", DOCUMENT_TERM_FREQUENCIES.size());
+        Metrics.count("index.terms", TERM_LIST.size());
+    }
+
+    /**
+     * Splits the index built by buildIndex into shards, and sends all searches from here on to it.
+     * @param shards The number of shards.
+     */
+    @SuppressWarnings("try")
+    static void useShardedIndex(int shards) {
+        try (Metrics.Phase phase = Metrics.startPhase("buildShards")) {
+            setSearchIndex(new ShardedIndex(DOCUMENT_TERM_FREQUENCIES, shards));
+        }
+        Metrics.count("index.shards", shards);
+    }
+
+    /**
+     * Builds impact-sorted, tiered postings from the index built by buildIndex, and sends all searches from here on
+     * to them.
+     * @param highTierSize How many of each term's highest impact postings go in its high tier.
+     * @param impactFloor Postings with a tf-idf below this are dropped.
+     */
+    @SuppressWarnings("try")
+    static void useImpactIndex(int highTierSize, double impactFloor) {
+        ImpactIndex index;
+        try (Metrics.Phase phase = Metrics.startPhase("buildImpactIndex")) {
+            index = new ImpactIndex(DOCUMENT_TERM_FREQUENCIES, highTierSize, impactFloor);
+        }
+        Metrics.count("index.impactPostings", index.postingCount());
+        Metrics.count("index.impactPruned", index.prunedCount());
+        setSearchIndex(index);
+    }
+
+    /**
+     * Builds postings with quantized weights from the index built by buildIndex, and sends all searches from here on
+     * to them.
+     * @param bits How many bits each posting's weight gets, 8 or 16.
+     * @param kernel The kernel to add up scores with.
+     */
+    @SuppressWarnings("try")
+    static void useQuantizedIndex(int bits, ScoreKernel kernel) {
+        QuantizedIndex index;
+        try (Metrics.Phase phase = Metrics.startPhase("buildQuantizedIndex")) {
+            index = new QuantizedIndex(DOCUMENT_TERM_FREQUENCIES, bits, kernel);
+        }
+        Metrics.count("index.quantizedPostings", index.postingCount());
+        Metrics.count("index.quantizedBytes", index.postingBytes());
+        System.out.println("Searching " + index + ".");
+        setSearchIndex(index);
+    }
+
+    /**
+     * Sends all searches from here on to an index, closing whichever one it replaces.
+     * @param index The index.
+     */
+    private static synchronized void setSearchIndex(SearchIndex index) {
+        closeSearchIndex();
+        searchIndex = index;
+    }
+
+    /**
+     * Closes the index searches are going to, and the paging index if one was built, so a sharded index's threads
+     * are stopped. Searches go back to scanning the documents afterwards.
+     */
+    static synchronized void closeSearchIndex() {
+        if (searchIndex != null)
+            searchIndex.close();
+        if (pagingIndex != null)
+            pagingIndex.close();
+        searchIndex = null;
+        pagingIndex = null;
+    }
+
+    /**
+     * Builds the compressed document store that snippets are cut from.
+     * @param corpusFile The file that contains all the documents.
+     */
+    @SuppressWarnings("try")
+    static void buildDocumentStore(File corpusFile) {
+        try (Metrics.Phase phase = Metrics.startPhase("buildDocumentStore")) {
+            documentStore = DocumentStore.build(corpusFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Problem reading file.", e);
+        }
+        Metrics.count("store.compressedBytes", documentStore.compressedSize());
+        Metrics.count("store.uncompressedBytes", documentStore.uncompressedSize());
+    }
+
+    /**
+     * Gets the part of a document that best matches a query, with the query words in [brackets].
+     * @param name The document's name, e.g. "100.txt".
+     * @param query The query.
+     * @return The snippet, or null if there's no document store or no such document.
+     */
+    static String getSnippet(String name, String query) {
+        if (documentStore == null)
+            return null;
+        long start = System.nanoTime();
+        String snippet = documentStore.getSnippet(name, normalizeIntoArray(query));
+        Metrics.time("snippet", System.nanoTime() - start);
+        return snippet;
+    }
+
+    /**
+     * Builds the sorted term dictionary from whichever index is in use, and turns on spelling correction.
+     * @param edits The most edits allowed between a query word and the term it's corrected to.
+     */
+    @SuppressWarnings("try")
+    static void useTermDictionary(int edits) {
+        HashMap<String, Integer> documentFrequencies = new HashMap<>();
+        if (searchIndex instanceof MappedIndex) {
+            documentFrequencies = ((MappedIndex) searchIndex).documentFrequencies();
+        } else {
+            for (Term term : TERM_LIST) {
+                documentFrequencies.put(term.toString(), term.documentFrequency);
+            }
+        }
+
+        try (Metrics.Phase phase = Metrics.startPhase("buildTermDictionary")) {
+            termDictionary = new TermDictionary(documentFrequencies);
+        }
+        maxEdits = edits;
+    }
+
+    /**
+     * Replaces each query word that isn't in the index with the closest term that is. Words with nothing close enough
+     * are left alone.
+     * @param tokens The normalized words in the query.
+     * @return The corrected words, or a copy of the tokens if spelling correction is off.
+     */
+    static ArrayList<String> correctSpelling(List<String> tokens) {
+        ArrayList<String> corrected = new ArrayList<>(tokens);
+        if (termDictionary == null)
+            return corrected;
+
+        for (int i = 0; i < corrected.size(); i++) {
+            if (termDictionary.contains(corrected.get(i)))
+                continue;
+            long start = System.nanoTime();
+            String term = termDictionary.correct(corrected.get(i), maxEdits);
+            Metrics.time("spelling", System.nanoTime() - start);
+            if (term != null) {
+                corrected.set(i, term);
+                Metrics.count("spelling.corrected", 1);
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * Adds the closest terms to each query word that isn't in the index, so a typo still finds the documents it was
+     * meant to. Up to MAX_EXPANSIONS terms are added for each word, the ones in the most documents first. Words with
+     * nothing close enough are left as they are and simply don't match anything.
+     * @param tokens The normalized words in the query.
+     * @return The words plus their expansions, or the words as they are if spelling correction is off.
+     */
+    static ArrayList<String> expandMisspellings(ArrayList<String> tokens) {
+        if (termDictionary == null)
+            return tokens;
+
+        ArrayList<String> expanded = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (termDictionary.contains(token)) {
+                expanded.add(token);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            List<TermDictionary.Suggestion> suggestions = termDictionary.suggest(token, maxEdits);
+            Metrics.time("spelling", System.nanoTime() - start);
+            if (suggestions.isEmpty()) {
+                expanded.add(token);
+                continue;
+            }
+            for (int i = 0; i < Math.min(MAX_EXPANSIONS, suggestions.size()); i++) {
+                expanded.add(suggestions.get(i).term);
+            }
+            Metrics.count("spelling.expanded", 1);
+        }
+        return expanded;
+    }
+
+    /**
+     * Gets each document's term frequencies, so other indexes can be built from them.
+     * @return Each document's name mapped to the term frequencies of the words in it.
+     */
+    static SortedMap<String, HashMap<Term, Integer>> getDocumentTermFrequencies() {
+        return Collections.unmodifiableSortedMap(DOCUMENT_TERM_FREQUENCIES);
+    }
+
+    /**
+     * Sends all searches from here on to a memory-mapped index file, building the file first if it doesn't exist.
+     * Once the file is mapped, the in-memory index isn't needed anymore, so it's thrown away to free up the heap.
+     * <p>
+     * The document store for snippets is written next to the index file, with ".docs" on the end of its name, and
+     * mapped too, so the collection is only read when one of the files has to be built.
+     * @param corpusFile The file that contains all the documents, used if the index file has to be built.
+     * @param corpusFolder The folder to extract the individual documents into, used if the index file has to be
+     *                     built.
+     * @param indexFile The mapped index file.
+     */
+    @SuppressWarnings("try")
+    static void useMappedIndex(File corpusFile, File corpusFolder, File indexFile) {
+        try {
+            if (!indexFile.exists()) {
+                buildIndex(corpusFile, corpusFolder);
+                try (Metrics.Phase phase = Metrics.startPhase("writeMappedIndex")) {
+                    MappedIndex.write(DOCUMENT_TERM_FREQUENCIES, indexFile);
+                }
+            }
+            File storeFile = new File(indexFile.getPath() + ".docs");
+            if (!storeFile.exists()) {
+                try (Metrics.Phase phase = Metrics.startPhase("writeDocumentStore")) {
+                    DocumentStore.write(corpusFile, storeFile);
+                }
+            }
+
+            try (Metrics.Phase phase = Metrics.startPhase("openMappedIndex")) {
+                setSearchIndex(MappedIndex.open(indexFile));
+                documentStore = DocumentStore.open(storeFile);
+            }
+            Metrics.count("index.mappedBytes", indexFile.length());
+            Metrics.count("store.mappedBytes", storeFile.length());
+        } catch (IOException e) {
+            throw new RuntimeException("Problem with the mapped index file.", e);
+        }
+
+        DOCUMENT_TERM_FREQUENCIES.clear();
+        TERM_LIST.clear();
+        Metrics.count("store.compressedBytes", documentStore.compressedSize());
+        Metrics.count("store.uncompressedBytes", documentStore.uncompressedSize());
+    }
+
+    /**
+     * Splits up --name=value arguments.
+     * @param args The command line arguments.
+     * @return Each option's value, keyed by its name.
+     */
+    static HashMap<String, String> parseOptions(String[] args) {
+        HashMap<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Options should look like --name=value, not \"" + arg + "\".");
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Gets every term in the index.
+     * @return The text of each term found across all documents.
+     */
+    static ArrayList<String> getVocabulary() {
+        // A mapped index clears TERM_LIST, so read the terms back out of its dictionary.
+        if (searchIndex instanceof MappedIndex)
+            return new ArrayList<>(((MappedIndex) searchIndex).documentFrequencies().keySet());
+
+        ArrayList<String> vocabulary = new ArrayList<>();
+        for (Term term : TERM_LIST) {
+            vocabulary.add(term.toString());
+        }
+        return vocabulary;
+    }
+
+    /**
+     * Search the documents. Words that aren't in the index are expanded to the closest terms that are, see
+     * expandMisspellings.
      * @param query The query.
      * @return A list of up to 10 relevant results.
      */
-    private static TreeMap<Double, String> search(String query) {
-        String line;
-        ArrayList<String> tokens = new ArrayList<>(normalizeIntoArray(query));
+    static TreeMap<Double, String> search(String query) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        ArrayList<String> tokens = expandMisspellings(normalizeIntoArray(query));
+        TreeMap<Double, String> results = searchIndex != null ? searchIndex(tokens) : scanDocuments(tokens);
+
+        Metrics.time("search", System.nanoTime() - start);
+        Metrics.record("search.tokens", tokens.size());
+        Metrics.count("search.queries", 1);
+        if (event.shouldCommit()) {
+            event.query = query;
+            event.tokens = tokens.size();
+            event.results = results.size();
+            event.commit();
+        }
+
+        return results;
+    }
+
+    /**
+     * Gets one page of results for a query. Like search, misspelled words are expanded to the closest terms.
+     * @param query The query.
+     * @param cursor The previous page's nextCursor, or null for the first page.
+     * @param k The most documents on the page.
+     * @return The page.
+     * @throws IllegalArgumentException If the cursor isn't one SearchPage made.
+     */
+    static SearchPage searchPage(String query, String cursor, int k) {
+        long start = System.nanoTime();
+        SearchPage page = SearchPage.fetch(pagingIndex(), expandMisspellings(normalizeIntoArray(query)), cursor, k);
+        Metrics.time("searchPage", System.nanoTime() - start);
+        Metrics.count("searchPage.pages", 1);
+        return page;
+    }
+
+    /**
+     * Goes through every relevant document for a query, best first, without holding more than one page of them at a
+     * time.
+     * @param query The query.
+     * @param pageSize How many documents to fetch at a time.
+     * @return The documents.
+     */
+    static Iterator<ScoredDocument> searchIterator(String query, int pageSize) {
+        return new PagedResults(pagingIndex(), expandMisspellings(normalizeIntoArray(query)), pageSize);
+    }
+
+    /**
+     * Gets the index to page through. scanDocuments has no way to start after a cursor, so if none of the other
+     * indexes were asked for, we'll build an unsharded one the first time we need it.
+     * @return The index.
+     */
+    @SuppressWarnings("try")
+    private static synchronized SearchIndex pagingIndex() {
+        if (searchIndex == null && pagingIndex == null) {
+            try (Metrics.Phase phase = Metrics.startPhase("buildPagingIndex")) {
+                pagingIndex = new ShardedIndex(DOCUMENT_TERM_FREQUENCIES, 1);
+            }
+        }
+        return searchIndex != null ? searchIndex : pagingIndex;
+    }
 
+    /**
+     * Gets the top 10 results for a query from searchIndex.
+     * @param tokens The normalized words in the query.
+     * @return A list of up to 10 relevant results.
+     */
+    private static TreeMap<Double, String> searchIndex(ArrayList<String> tokens) {
+        TreeMap<Double, String> results = new TreeMap<>();
+        for (ScoredDocument document : searchIndex.search(tokens, 10)) {
+            results.put(document.score, document.name);
+        }
+        return results;
+    }
+
+    /**
+     * Gets the top 10 results for a query by checking it against every document's list of terms.
+     * @param tokens The normalized words in the query.
+     * @return A list of up to 10 relevant results.
+     */
+    static TreeMap<Double, String> scanDocuments(ArrayList<String> tokens) {
         // We'll go through each document in DOCUMENT_TERM_FREQUENCIES and compare the terms in the document
         // with the terms in the query. We'll add up the tf-idf values of each matching term to get the overall
         // rating for the document.
@@ -346,7 +771,7 @@ public class ProjectThree {
      * @param line The string to be normalized.
      * @return An ArrayList containing each token in the string.
      */
-    private static ArrayList<String> normalizeIntoArray(String line) {
+    static ArrayList<String> normalizeIntoArray(String line) {
         Matcher wordMatcher;
         Pattern wordPattern = Pattern.compile("[a-zA-Z]+");
         ArrayList<String> tokens = new ArrayList<>();
@@ -429,7 +854,7 @@ public class ProjectThree {
                 // Else, we'll need to iterate through the termList and make sure we're not adding a duplicate.
                 else {
                     boolean inList = false;
-                    short index = 0;
+                    int index = 0;
                     for (int i = 0; i < TERM_LIST.size(); i++) {
 
                         // If it sees the word is already in the termList, we'll set inList to true and record the
@@ -437,7 +862,7 @@ public class ProjectThree {
                         // to speed things up.
                         if (Objects.equals(entry.getKey(), TERM_LIST.get(i))) {
                             inList = true;
-                            index = (short) i;
+                            index = i;
                             break;
                         }
                     }
@@ -467,46 +892,3 @@ public class ProjectThree {
         }
     }
 }
-
-/**
- * Class to hold information for an individual term.
- */
-class Term {
-    String term;
-    short documentFrequency = 0;
-    double tfIdf = 0;
-
-    Term(String term) {
-        this.term = term.toLowerCase();
-    }
-
-    // We need to override equals, so we can compare two Terms, e.g. term1 == term2.
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj)
-            return true;
-        if (obj == null)
-            return false;
-        if (getClass() != obj.getClass())
-            return false;
-        Term term2 = (Term) obj;
-        if (term == null) {
-            return term2.term == null;
-        } else return this.term.equals(term2.term);
-    }
-
-    // If we override equals, we need to override hashCode to maintain internal consistency.
-    @Override
-    public int hashCode() {
-
-        // We'll return the hashcode of the text as an identifier. This works because if we have two Term objects with
-        // the same value in their text field, they will be considered the same object when compared.
-        return term.hashCode();
-    }
-
-    // Just to make sure if you call the term by itself, it will only return the text.
-    @Override
-    public String toString() {
-        return this.term;
-    }
-}
\ No newline at end of file
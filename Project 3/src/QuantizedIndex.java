@@ -0,0 +1,158 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A tf-idf index where each posting's weight is squeezed into an 8 or 16-bit integer, its impact, when the index is
+ * built. All the postings are packed end to end in a few primitive arrays instead of an object per term per
+ * document, and searches add the impacts up into a float array with a ScoreKernel.
+ * <p>
+ * Each term gets its own scale, so its highest weight always maps to the top impact (255 or 65535) and every other
+ * weight is rounded to the nearest step below it. A posting's weight is idf * tf, and idf is the same for every
+ * posting of a term, so the rounding only costs anything when a term's tfs don't divide evenly into the steps.
+ */
+class QuantizedIndex implements SearchIndex {
+    private final String[] names;
+    private final int bits;
+    private final ScoreKernel kernel;
+
+    // Term ids, and where each term's postings are: term t's are docs[starts[t]] up to docs[starts[t + 1]].
+    private final HashMap<String, Integer> termIds = new HashMap<>();
+    private final int[] starts;
+    private final int[] docs;
+
+    // Only one of these is used, depending on bits.
+    private final byte[] impacts8;
+    private final short[] impacts16;
+
+    // What one unit of impact is worth for each term.
+    private final float[] scales;
+
+    /**
+     * Builds the quantized postings.
+     * @param documents Each document's name mapped to the term frequencies of the words in it, like
+     *                  ProjectThree's DOCUMENT_TERM_FREQUENCIES.
+     * @param bits 8 or 16.
+     * @param kernel The kernel to add up scores with.
+     */
+    QuantizedIndex(Map<String, ? extends Map<Term, Integer>> documents, int bits, ScoreKernel kernel) {
+        if (bits != 8 && bits != 16)
+            throw new IllegalArgumentException("Impacts can be 8 or 16 bits, not " + bits + ".");
+        this.bits = bits;
+        this.kernel = kernel;
+        int levels = (1 << bits) - 1;
+
+        // First pass: each term's document frequency and highest tf.
+        names = documents.keySet().toArray(new String[0]);
+        HashMap<String, int[]> stats = new HashMap<>();
+        for (Map<Term, Integer> terms : documents.values()) {
+            for (Map.Entry<Term, Integer> entry : terms.entrySet()) {
+                int[] termStats = stats.computeIfAbsent(entry.getKey().toString(), key -> new int[2]);
+                termStats[0]++;
+                termStats[1] = Math.max(termStats[1], entry.getValue());
+            }
+        }
+
+        // Number the terms, leaving out the ones in every document. Their idf is 0, so they never add anything.
+        String[] terms = stats.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int termCount = 0;
+        for (String term : terms) {
+            if (stats.get(term)[0] < names.length)
+                termIds.put(term, termCount++);
+        }
+
+        // Lay out the postings lists end to end, and work out each term's scale.
+        starts = new int[termCount + 1];
+        scales = new float[termCount];
+        for (String term : terms) {
+            Integer id = termIds.get(term);
+            if (id == null)
+                continue;
+            int[] termStats = stats.get(term);
+            starts[id + 1] = termStats[0];
+            double idf = Math.log((double) names.length / termStats[0]);
+            scales[id] = (float) (idf * termStats[1] / levels);
+        }
+        for (int t = 0; t < termCount; t++) {
+            starts[t + 1] += starts[t];
+        }
+
+        // Second pass: fill in the postings. Documents are visited in order, so every list ends up sorted.
+        docs = new int[starts[termCount]];
+        impacts8 = bits == 8 ? new byte[docs.length] : null;
+        impacts16 = bits == 16 ? new short[docs.length] : null;
+        int[] next = Arrays.copyOf(starts, termCount);
+        for (int doc = 0; doc < names.length; doc++) {
+            for (Map.Entry<Term, Integer> entry : documents.get(names[doc]).entrySet()) {
+                Integer id = termIds.get(entry.getKey().toString());
+                if (id == null)
+                    continue;
+
+                // Round to the nearest step, but never all the way down to 0, or the posting would be lost.
+                int maxTf = stats.get(entry.getKey().toString())[1];
+                int impact = (int) Math.max(1, Math.round((double) entry.getValue() * levels / maxTf));
+                int position = next[id]++;
+                docs[position] = doc;
+                if (bits == 8)
+                    impacts8[position] = (byte) impact;
+                else
+                    impacts16[position] = (short) impact;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of postings in the index.
+     * @return The number of postings.
+     */
+    int postingCount() {
+        return docs.length;
+    }
+
+    /**
+     * Works out roughly how much memory the postings take up: the packed arrays, but not the term or document names.
+     * @return The size in bytes.
+     */
+    long postingBytes() {
+        return 4L * docs.length + (long) (bits / 8) * docs.length + 4L * starts.length + 4L * scales.length;
+    }
+
+    @Override
+    public List<ScoredDocument> searchAfter(List<String> tokens, ScoredDocument after, int k) {
+        // A word that shows up twice in the query counts twice, so fold repeats into the word's weight.
+        LinkedHashMap<String, Integer> counts = new LinkedHashMap<>();
+        for (String token : tokens) {
+            counts.merge(token, 1, Integer::sum);
+        }
+
+        float[] scores = new float[names.length];
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            Integer id = termIds.get(entry.getKey());
+            if (id == null)
+                continue;
+            float weight = scales[id] * entry.getValue();
+            if (bits == 8)
+                kernel.accumulate(scores, docs, impacts8, starts[id], starts[id + 1], weight);
+            else
+                kernel.accumulate(scores, docs, impacts16, starts[id], starts[id + 1], weight);
+        }
+
+        ScoredDocument.TopK topK = new ScoredDocument.TopK(k, after);
+        for (int doc = 0; doc < scores.length; doc++) {
+            if (scores[doc] > 0 && scores[doc] >= topK.threshold())
+                topK.offer(new ScoredDocument(names[doc], scores[doc]));
+        }
+        return topK.toList();
+    }
+
+    @Override
+    public String toString() {
+        return "quantized(" + bits + " bits, " + kernel.name() + ")";
+    }
+}
@@ -0,0 +1,94 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+/**
+ * The inner loop of a quantized search: adds one query word's postings into the score of every document it's in.
+ * <p>
+ * There are two versions. Scalar is plain Java and always works. VectorScoreKernel, in the vector folder, does the
+ * same thing several documents at a time with the Vector API, but that API is still an incubator module in Java 17,
+ * so it has to be compiled and run with --add-modules jdk.incubator.vector. best() uses it when it can and falls back
+ * to Scalar when it can't.
+ */
+interface ScoreKernel {
+
+    /**
+     * Adds weight * impacts[i] to scores[docs[i]] for every i from from up to to. Impacts are unsigned.
+     * @param scores Each document's score so far.
+     * @param docs The postings' document numbers. No document shows up twice in the range.
+     * @param impacts The postings' 8-bit impacts.
+     * @param from The first posting.
+     * @param to One past the last posting.
+     * @param weight What one unit of impact is worth.
+     */
+    void accumulate(float[] scores, int[] docs, byte[] impacts, int from, int to, float weight);
+
+    /**
+     * The same as the 8-bit version, but with 16-bit impacts.
+     */
+    void accumulate(float[] scores, int[] docs, short[] impacts, int from, int to, float weight);
+
+    /**
+     * Gets a short name for the kernel, for printing.
+     * @return The name.
+     */
+    String name();
+
+    /**
+     * Gets the fastest kernel that works here.
+     * @return VectorScoreKernel if it was compiled and the Vector API module is loaded, or Scalar if not.
+     */
+    static ScoreKernel best() {
+        try {
+            return (ScoreKernel) Class.forName("VectorScoreKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new Scalar();
+        }
+    }
+
+    /**
+     * Gets a kernel by name.
+     * @param name "scalar", "vector", or "best".
+     * @return The kernel.
+     * @throws IllegalArgumentException If the name isn't known, or the vector kernel was asked for but can't be used.
+     */
+    static ScoreKernel named(String name) {
+        switch (name) {
+            case "scalar":
+                return new Scalar();
+            case "best":
+                return best();
+            case "vector":
+                ScoreKernel kernel = best();
+                if (kernel instanceof Scalar)
+                    throw new IllegalArgumentException("The vector kernel isn't available. Compile the vector folder "
+                            + "and run with --add-modules jdk.incubator.vector.");
+                return kernel;
+            default:
+                throw new IllegalArgumentException("Unknown kernel \"" + name + "\".");
+        }
+    }
+
+    /**
+     * One posting at a time.
+     */
+    class Scalar implements ScoreKernel {
+        @Override
+        public void accumulate(float[] scores, int[] docs, byte[] impacts, int from, int to, float weight) {
+            for (int i = from; i < to; i++) {
+                scores[docs[i]] += weight * (impacts[i] & 0xff);
+            }
+        }
+
+        @Override
+        public void accumulate(float[] scores, int[] docs, short[] impacts, int from, int to, float weight) {
+            for (int i = from; i < to; i++) {
+                scores[docs[i]] += weight * (impacts[i] & 0xffff);
+            }
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+}
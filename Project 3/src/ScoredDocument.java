@@ -0,0 +1,90 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A document together with its rating for a query.
+ */
+class ScoredDocument {
+    // Highest score first. Ties go to the lower document name, so results don't change from run to run.
+    static final Comparator<ScoredDocument> BEST_FIRST = Comparator
+            .comparingDouble((ScoredDocument d) -> d.score).reversed()
+            .thenComparing(d -> d.name);
+
+    final String name;
+    final double score;
+
+    ScoredDocument(String name, double score) {
+        this.name = name;
+        this.score = score;
+    }
+
+    /**
+     * Keeps the best k documents seen so far. The worst of them sits at the top of the heap, so we can check a new
+     * document against it and kick it out in O(log k).
+     */
+    static class TopK {
+        private final int k;
+        private final ScoredDocument after;
+        private final PriorityQueue<ScoredDocument> heap;
+
+        TopK(int k) {
+            this(k, null);
+        }
+
+        /**
+         * Makes a collector that only keeps documents ranked below a given one, for fetching later pages.
+         * @param k The most documents to keep.
+         * @param after The last document on the previous page, or null to keep the best documents.
+         */
+        TopK(int k, ScoredDocument after) {
+            this.k = k;
+            this.after = after;
+            this.heap = new PriorityQueue<>(Math.max(1, k), BEST_FIRST.reversed());
+        }
+
+        /**
+         * Offers a document to the collector.
+         * @param document The document.
+         */
+        void offer(ScoredDocument document) {
+            if (k <= 0)
+                return;
+            if (after != null && BEST_FIRST.compare(document, after) <= 0)
+                return;
+            if (heap.size() < k) {
+                heap.add(document);
+            } else if (BEST_FIRST.compare(document, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(document);
+            }
+        }
+
+        /**
+         * Gets the lowest score a new document would have to beat to make the cut.
+         * @return The worst kept score, or negative infinity if fewer than k documents have been offered.
+         */
+        double threshold() {
+            return heap.size() < k ? Double.NEGATIVE_INFINITY : heap.peek().score;
+        }
+
+        /**
+         * Gets the documents that made the cut.
+         * @return The kept documents, highest rated first.
+         */
+        List<ScoredDocument> toList() {
+            List<ScoredDocument> results = new ArrayList<>(heap);
+            results.sort(BEST_FIRST);
+            return results;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + score;
+    }
+}
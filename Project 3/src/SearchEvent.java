@@ -0,0 +1,26 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering a single search.
+ */
+@Name("csci4130.Search")
+@Label("Search")
+@Category({"CSCI 4130", "Project Three"})
+@Description("A single tf-idf search.")
+class SearchEvent extends Event {
+    @Label("Query")
+    String query;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Results")
+    int results;
+}
@@ -0,0 +1,39 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.util.List;
+
+/**
+ * An alternative index that ProjectThree.search can hand queries to instead of scanning every document's term list.
+ * Implementations have to be safe to search from several threads at once.
+ */
+interface SearchIndex extends AutoCloseable {
+
+    /**
+     * Finds the highest rated documents for a query.
+     * @param tokens The normalized words in the query. A word that appears twice counts twice, like in
+     *               ProjectThree.search.
+     * @param k The most documents to return.
+     * @return Up to k documents with a rating above zero, highest rated first.
+     */
+    default List<ScoredDocument> search(List<String> tokens, int k) {
+        return searchAfter(tokens, null, k);
+    }
+
+    /**
+     * Finds the next page of documents for a query: the highest rated ones that come after a given document in
+     * BEST_FIRST order. Only k documents are ever kept while searching, however many pages in we are.
+     * @param tokens The normalized words in the query.
+     * @param after The last document on the previous page, or null for the first page.
+     * @param k The most documents to return.
+     * @return Up to k documents with a rating above zero that rank below after, highest rated first.
+     */
+    List<ScoredDocument> searchAfter(List<String> tokens, ScoredDocument after, int k);
+
+    /**
+     * Frees anything the index holds besides memory, like threads. Most indexes don't hold anything.
+     */
+    @Override
+    default void close() {
+    }
+}
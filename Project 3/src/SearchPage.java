@@ -0,0 +1,74 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of search results, and a cursor for getting the page after it.
+ * <p>
+ * The cursor is the last document on the page, its score and name, packed into a string the caller doesn't need to
+ * look inside. Handing it back to fetch gets the documents ranked right below it, and the index only ever keeps k of
+ * them while searching, so page 100 costs about the same as page 1. Paging with an offset would have to find the
+ * first offset + k documents and throw most of them away.
+ */
+class SearchPage {
+    final List<ScoredDocument> results;
+
+    // Null if this is the last page.
+    final String nextCursor;
+
+    SearchPage(List<ScoredDocument> results, String nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets a page of results from an index.
+     * @param index The index.
+     * @param tokens The normalized words in the query.
+     * @param cursor The previous page's nextCursor, or null for the first page.
+     * @param k The most documents on the page.
+     * @return The page.
+     * @throws IllegalArgumentException If the cursor isn't one we made.
+     */
+    static SearchPage fetch(SearchIndex index, List<String> tokens, String cursor, int k) {
+        List<ScoredDocument> results = index.searchAfter(tokens, cursor == null ? null : decodeCursor(cursor), k);
+
+        // A short page means there's nothing after it, so we can save the caller a trip.
+        String next = results.size() < k || results.isEmpty() ? null : encodeCursor(results.get(results.size() - 1));
+        return new SearchPage(results, next);
+    }
+
+    /**
+     * Turns a document into a cursor. The score is written out as its exact bits, since a rounded score could land
+     * on the wrong side of a tie.
+     * @param document The last document on a page.
+     * @return The cursor.
+     */
+    static String encodeCursor(ScoredDocument document) {
+        String cursor = Long.toHexString(Double.doubleToLongBits(document.score)) + ":" + document.name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Turns a cursor back into the document it was made from.
+     * @param cursor The cursor.
+     * @return A document with the same score and name.
+     * @throws IllegalArgumentException If the cursor isn't one we made.
+     */
+    static ScoredDocument decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = decoded.indexOf(':');
+            if (colon < 0)
+                throw new IllegalArgumentException("Bad cursor \"" + cursor + "\".");
+            double score = Double.longBitsToDouble(Long.parseUnsignedLong(decoded.substring(0, colon), 16));
+            return new ScoredDocument(decoded.substring(colon + 1), score);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad cursor \"" + cursor + "\".", e);
+        }
+    }
+}
+
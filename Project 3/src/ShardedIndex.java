@@ -0,0 +1,241 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A tf-idf index split into shards by document. Each shard has its own postings lists and is searched on its own
+ * thread, then the best documents from every shard are merged into one top-k list.
+ * <p>
+ * The idf of each term is worked out from the document frequencies of all the shards added together, so a document
+ * gets the same rating no matter which shard it lands in.
+ * <p>
+ * With more than one shard the index owns a thread pool, so call close() once it's no longer needed.
+ */
+class ShardedIndex implements SearchIndex {
+    private final Shard[] shards;
+
+    // idf for every term in the collection, shared by all the shards.
+    private final HashMap<String, Double> idf = new HashMap<>();
+
+    // Null when there's only one shard, since there's nothing to run in parallel.
+    private final ExecutorService pool;
+
+    /**
+     * Splits the documents into shards and builds each shard's postings.
+     * @param documents Each document's name mapped to the term frequencies of the words in it, like
+     *                  ProjectThree's DOCUMENT_TERM_FREQUENCIES.
+     * @param shardCount The number of shards to split the documents into.
+     */
+    ShardedIndex(Map<String, ? extends Map<Term, Integer>> documents, int shardCount) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("Need at least one shard, got " + shardCount + ".");
+
+        // The shard threads are daemons so they don't keep the program alive after main returns.
+        pool = shardCount == 1 ? null : Executors.newFixedThreadPool(shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "shard-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Deal the documents out to the shards round-robin, so they all end up about the same size.
+        List<List<Map.Entry<String, ? extends Map<Term, Integer>>>> assignments = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            assignments.add(new ArrayList<>());
+        }
+        int next = 0;
+        for (Map.Entry<String, ? extends Map<Term, Integer>> entry : documents.entrySet()) {
+            assignments.get(next).add(entry);
+            next = (next + 1) % shardCount;
+        }
+
+        // Each shard can build its postings without looking at any of the others.
+        List<Callable<Shard>> builds = new ArrayList<>();
+        for (List<Map.Entry<String, ? extends Map<Term, Integer>>> assignment : assignments) {
+            builds.add(() -> new Shard(assignment));
+        }
+        shards = invokeAll(builds).toArray(new Shard[0]);
+
+        // Add up each term's document frequency across the shards, then calculate the idf the same way getTFIDF
+        // does.
+        HashMap<String, Integer> documentFrequencies = new HashMap<>();
+        for (Shard shard : shards) {
+            for (Map.Entry<String, Postings> entry : shard.postings.entrySet()) {
+                documentFrequencies.merge(entry.getKey(), entry.getValue().docs.length, Integer::sum);
+            }
+        }
+        int n = documents.size();
+        for (Map.Entry<String, Integer> entry : documentFrequencies.entrySet()) {
+            idf.put(entry.getKey(), Math.log((double) n / entry.getValue()));
+        }
+    }
+
+    /**
+     * Gets the number of shards.
+     * @return The number of shards.
+     */
+    int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public List<ScoredDocument> searchAfter(List<String> tokens, ScoredDocument after, int k) {
+        // Look up the global idf of each word once, before fanning out to the shards.
+        ArrayList<String> words = new ArrayList<>();
+        ArrayList<Double> weights = new ArrayList<>();
+        for (String token : tokens) {
+            Double weight = idf.get(token);
+            if (weight != null && weight > 0) {
+                words.add(token);
+                weights.add(weight);
+            }
+        }
+
+        if (words.isEmpty())
+            return new ArrayList<>();
+
+        // Search every shard in parallel.
+        List<Callable<List<ScoredDocument>>> searches = new ArrayList<>();
+        for (Shard shard : shards) {
+            searches.add(() -> shard.search(words, weights, after, k));
+        }
+
+        // Each shard has already trimmed its results to k, so the merge only ever looks at shards * k documents.
+        ScoredDocument.TopK topK = new ScoredDocument.TopK(k, after);
+        for (List<ScoredDocument> shardResults : invokeAll(searches)) {
+            for (ScoredDocument document : shardResults) {
+                topK.offer(document);
+            }
+        }
+        return topK.toList();
+    }
+
+    /**
+     * Stops the shard threads. Searching after this only works with a single shard.
+     */
+    @Override
+    public void close() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    /**
+     * Runs a batch of tasks on the shard threads and waits for all of them.
+     * @param tasks The tasks to run.
+     * @return The result of each task, in the same order as the tasks.
+     */
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        // With only one shard there's nothing to run in parallel, so run it right here.
+        List<T> results = new ArrayList<>();
+        try {
+            if (pool == null) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+                return results;
+            }
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return results;
+    }
+
+    /**
+     * One slice of the collection, with postings for just the documents in it.
+     */
+    private static class Shard {
+        // Documents are numbered locally within the shard. This maps the local number back to the document's name.
+        private final String[] names;
+        private final HashMap<String, Postings> postings = new HashMap<>();
+
+        Shard(List<Map.Entry<String, ? extends Map<Term, Integer>>> documents) {
+            names = new String[documents.size()];
+
+            // First pass: count how many documents each term is in, so each postings list can be allocated once at
+            // the right size.
+            HashMap<String, Integer> counts = new HashMap<>();
+            for (Map.Entry<String, ? extends Map<Term, Integer>> document : documents) {
+                for (Term term : document.getValue().keySet()) {
+                    counts.merge(term.toString(), 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                postings.put(entry.getKey(), new Postings(entry.getValue()));
+            }
+
+            // Second pass: fill in the postings. Documents are visited in order, so every list ends up sorted.
+            for (int doc = 0; doc < documents.size(); doc++) {
+                names[doc] = documents.get(doc).getKey();
+                for (Map.Entry<Term, Integer> entry : documents.get(doc).getValue().entrySet()) {
+                    postings.get(entry.getKey().toString()).add(doc, entry.getValue());
+                }
+            }
+        }
+
+        /**
+         * Rates the documents in this shard.
+         * @param words The query words that are in the collection.
+         * @param weights The global idf of each word.
+         * @param after Only documents that come after this one are returned, or null for the best documents.
+         * @param k The most documents to return.
+         * @return This shard's best k documents.
+         */
+        List<ScoredDocument> search(List<String> words, List<Double> weights, ScoredDocument after, int k) {
+            // Walk each word's postings and add its tf-idf to the documents it's in, instead of checking every word
+            // of every document.
+            double[] ratings = new double[names.length];
+            for (int i = 0; i < words.size(); i++) {
+                Postings list = postings.get(words.get(i));
+                if (list == null)
+                    continue;
+                double weight = weights.get(i);
+                for (int j = 0; j < list.docs.length; j++) {
+                    ratings[list.docs[j]] += weight * list.tfs[j];
+                }
+            }
+
+            ScoredDocument.TopK topK = new ScoredDocument.TopK(k, after);
+            for (int doc = 0; doc < ratings.length; doc++) {
+                if (ratings[doc] > 0 && ratings[doc] >= topK.threshold())
+                    topK.offer(new ScoredDocument(names[doc], ratings[doc]));
+            }
+            return topK.toList();
+        }
+    }
+
+    /**
+     * The documents a term appears in, along with how many times it appears in each.
+     */
+    private static class Postings {
+        final int[] docs;
+        final int[] tfs;
+        private int size = 0;
+
+        Postings(int length) {
+            docs = new int[length];
+            tfs = new int[length];
+        }
+
+        void add(int doc, int tf) {
+            docs[size] = doc;
+            tfs[size] = tf;
+            size++;
+        }
+    }
+}
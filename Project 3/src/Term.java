@@ -0,0 +1,45 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+/**
+ * Class to hold information for an individual term.
+ */
+class Term {
+    String term;
+    int documentFrequency = 0;
+    double tfIdf = 0;
+
+    Term(String term) {
+        this.term = term.toLowerCase();
+    }
+
+    // We need to override equals, so we can compare two Terms, e.g. term1 == term2.
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        Term term2 = (Term) obj;
+        if (term == null) {
+            return term2.term == null;
+        } else return this.term.equals(term2.term);
+    }
+
+    // If we override equals, we need to override hashCode to maintain internal consistency.
+    @Override
+    public int hashCode() {
+
+        // We'll return the hashcode of the text as an identifier. This works because if we have two Term objects with
+        // the same value in their text field, they will be considered the same object when compared.
+        return term.hashCode();
+    }
+
+    // Just to make sure if you call the term by itself, it will only return the text.
+    @Override
+    public String toString() {
+        return this.term;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ScoreKernel using the Vector API. Each pass of the loop loads a vector's worth of impacts, widens them to floats,
+ * gathers the matching documents' scores, adds the weighted impacts, and scatters the scores back. The documents in
+ * one postings list are all different, so no two lanes ever write to the same score.
+ * <p>
+ * This needs the jdk.incubator.vector module, so it's kept out of src. To use it:
+ * <pre>
+ *   javac -d out src/*.java
+ *   javac --add-modules jdk.incubator.vector -cp out -d out vector/*.java
+ *   java --add-modules jdk.incubator.vector -cp out ProjectThree --quantized=8
+ * </pre>
+ */
+class VectorScoreKernel implements ScoreKernel {
+    // As many floats as the CPU handles at once, and the int, byte, and short species with the same number of lanes.
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.length() * Byte.SIZE));
+    private static final VectorSpecies<Short> SHORTS =
+            VectorSpecies.of(short.class, VectorShape.forBitSize(FLOATS.length() * Short.SIZE));
+
+    @Override
+    public void accumulate(float[] scores, int[] docs, byte[] impacts, int from, int to, float weight) {
+        int i = from;
+        int bound = from + FLOATS.loopBound(to - from);
+        for (; i < bound; i += FLOATS.length()) {
+            // Bytes are signed, so mask off the sign extension to get impacts from 0 to 255.
+            IntVector wide = (IntVector) ByteVector.fromArray(BYTES, impacts, i)
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+            FloatVector impact = (FloatVector) wide.lanewise(VectorOperators.AND, 0xff)
+                    .convert(VectorOperators.I2F, 0);
+            FloatVector.fromArray(FLOATS, scores, 0, docs, i)
+                    .add(impact.mul(weight))
+                    .intoArray(scores, 0, docs, i);
+        }
+        for (; i < to; i++) {
+            scores[docs[i]] += weight * (impacts[i] & 0xff);
+        }
+    }
+
+    @Override
+    public void accumulate(float[] scores, int[] docs, short[] impacts, int from, int to, float weight) {
+        int i = from;
+        int bound = from + FLOATS.loopBound(to - from);
+        for (; i < bound; i += FLOATS.length()) {
+            IntVector wide = (IntVector) ShortVector.fromArray(SHORTS, impacts, i)
+                    .convertShape(VectorOperators.S2I, INTS, 0);
+            FloatVector impact = (FloatVector) wide.lanewise(VectorOperators.AND, 0xffff)
+                    .convert(VectorOperators.I2F, 0);
+            FloatVector.fromArray(FLOATS, scores, 0, docs, i)
+                    .add(impact.mul(weight))
+                    .intoArray(scores, 0, docs, i);
+        }
+        for (; i < to; i++) {
+            scores[docs[i]] += weight * (impacts[i] & 0xffff);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector(" + FLOATS.length() + " lanes)";
+    }
+}
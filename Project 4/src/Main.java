@@ -0,0 +1,250 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Scanner;
+
+public class Main {
+    public static void main(String[] args) {
+        Analyzer analyzer = new StandardAnalyzer();
+
+        try {
+            // Create a temporary directory to hold the index for Lucene.
+            Path indexPath = Files.createTempDirectory("tempIndex");
+            Directory directory = buildIndex(new File("corpus"), indexPath, analyzer);
+
+            // Search the directory.
+            DirectoryReader ireader = DirectoryReader.open(directory);
+            IndexSearcher isearcher = new IndexSearcher(ireader);
+
+            // Get user query.
+            Scanner scanner = new Scanner(System.in);
+            System.out.print("Type your query: ");
+
+            // Search the index for the top 5 relevant documents.
+            String queryText = scanner.nextLine();
+            ScoreDoc[] hits = search(isearcher, analyzer, queryText, 5);
+            assert(1 == hits.length);
+
+            // Print out the results to the user, 5 at a time for as long as they want more. Each page starts after
+            // the last hit on the one before, so Lucene only has to collect 5 hits however far in we go.
+            StoredFields storedFields = isearcher.storedFields();
+            while (hits.length != 0) {
+                for (ScoreDoc hit : hits) {
+                    Document hitDoc = storedFields.document(hit.doc);
+                    System.out.println(hitDoc.get("title"));
+                }
+                if (hits.length < 5)
+                    break;
+
+                System.out.print("Type \"more\" to see the next 5, or anything else to stop: ");
+                if (!scanner.hasNextLine() || !scanner.nextLine().toLowerCase().trim().equals("more"))
+                    break;
+                hits = searchAfter(isearcher, analyzer, queryText, hits[hits.length - 1], 5).scoreDocs;
+            }
+
+            ireader.close();
+            directory.close();
+            IOUtils.rm(indexPath);
+        } catch (IOException | ParseException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Adds every file in the corpus to a Lucene index.
+     * @param corpus The directory containing the documents.
+     * @param indexPath The directory to store the index in.
+     * @param analyzer The analyzer used to tokenize the documents.
+     * @return The directory holding the finished index.
+     * @throws IOException If there's a problem reading a document or writing the index.
+     */
+    static Directory buildIndex(File corpus, Path indexPath, Analyzer analyzer) throws IOException {
+        Directory directory = FSDirectory.open(indexPath);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        IndexWriter iwriter = new IndexWriter(directory, config);
+
+        // Iterate through each file in the corpus, adding the files to Lucene's index.
+        for (File file : Objects.requireNonNull(corpus.listFiles())) {
+            Document doc = new Document();
+            BufferedReader br = new BufferedReader(new FileReader(file));
+            StringBuilder body = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) {
+                body.append(line).append("\n");
+            }
+
+            doc.add(new Field("body", body, TextField.TYPE_STORED));
+            doc.add(new Field("title", file.getName(), TextField.TYPE_STORED));
+            iwriter.addDocument(doc);
+        }
+
+        iwriter.close();
+        return directory;
+    }
+
+    /**
+     * Searches the index for the most relevant documents.
+     * QueryParser isn't thread safe, so each search gets its own. The IndexSearcher can be shared.
+     * @param isearcher The searcher to run the query with.
+     * @param analyzer The analyzer used to build the index.
+     * @param queryText The query as the user typed it.
+     * @param n The number of documents to return.
+     * @return Up to n of the most relevant documents.
+     * @throws IOException If there's a problem reading the index.
+     * @throws ParseException If the query isn't valid Lucene query syntax.
+     */
+    static ScoreDoc[] search(IndexSearcher isearcher, Analyzer analyzer, String queryText, int n)
+            throws IOException, ParseException {
+        QueryParser parser = new QueryParser("body", analyzer);
+        Query query = parser.parse(queryText);
+        return isearcher.search(query, n).scoreDocs;
+    }
+
+    /**
+     * Gets the next page of results for a query: the most relevant documents that rank below a hit from the page
+     * before. Lucene only keeps n hits while it searches, no matter how deep the page is.
+     * @param isearcher The searcher to run the query with.
+     * @param analyzer The analyzer used to build the index.
+     * @param queryText The query as the user typed it.
+     * @param after The last hit on the previous page, or null for the first page.
+     * @param n The number of documents to return.
+     * @return Up to n documents that rank below after.
+     * @throws IOException If there's a problem reading the index.
+     * @throws ParseException If the query isn't valid Lucene query syntax.
+     */
+    static TopDocs searchAfter(IndexSearcher isearcher, Analyzer analyzer, String queryText, ScoreDoc after, int n)
+            throws IOException, ParseException {
+        QueryParser parser = new QueryParser("body", analyzer);
+        Query query = parser.parse(queryText);
+        return isearcher.searchAfter(after, query, n);
+    }
+
+    /**
+     * Goes through every document that matches a query, most relevant first, fetching them a page at a time.
+     * @param isearcher The searcher to run the query with.
+     * @param analyzer The analyzer used to build the index.
+     * @param queryText The query as the user typed it.
+     * @param pageSize How many hits to fetch at a time.
+     * @return The hits.
+     * @throws ParseException If the query isn't valid Lucene query syntax.
+     */
+    static Iterator<ScoreDoc> searchIterator(IndexSearcher isearcher, Analyzer analyzer, String queryText,
+                                             int pageSize) throws ParseException {
+        QueryParser parser = new QueryParser("body", analyzer);
+        return new LuceneResults(isearcher, parser.parse(queryText), pageSize);
+    }
+
+    /**
+     * Turns the last hit on a page into a cursor that can be handed out and passed back later. It's the hit's
+     * document number and the exact bits of its score, since that's all searchAfter looks at. Document numbers
+     * change when the index does, so a cursor is only good for the reader it came from.
+     * @param hit The hit.
+     * @return The cursor.
+     */
+    static String encodeCursor(ScoreDoc hit) {
+        String cursor = hit.doc + ":" + Integer.toHexString(Float.floatToIntBits(hit.score));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Turns a cursor back into the hit it was made from, to pass to searchAfter.
+     * @param cursor The cursor.
+     * @return The hit.
+     * @throws IllegalArgumentException If the cursor isn't one encodeCursor made.
+     */
+    static ScoreDoc decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = decoded.indexOf(':');
+            if (colon < 0)
+                throw new IllegalArgumentException("Bad cursor \"" + cursor + "\".");
+            int doc = Integer.parseInt(decoded.substring(0, colon));
+            float score = Float.intBitsToFloat(Integer.parseUnsignedInt(decoded.substring(colon + 1), 16));
+            return new ScoreDoc(doc, score);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad cursor \"" + cursor + "\".", e);
+        }
+    }
+}
+
+/**
+ * Goes through a query's hits a page at a time with searchAfter. Only the current page is held in memory, and the
+ * next one isn't searched for until it's needed.
+ */
+class LuceneResults implements Iterator<ScoreDoc> {
+    private final IndexSearcher isearcher;
+    private final Query query;
+    private final int pageSize;
+    private ScoreDoc[] page;
+    private int position = 0;
+
+    /**
+     * @param isearcher The searcher to run the query with.
+     * @param query The parsed query.
+     * @param pageSize How many hits to fetch at a time.
+     */
+    LuceneResults(IndexSearcher isearcher, Query query, int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("Pages need at least one hit, not " + pageSize + ".");
+        this.isearcher = isearcher;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.page = fetch(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        // A short page was the last one, so there's no need to ask for another.
+        if (position == page.length && page.length == pageSize) {
+            page = fetch(page[page.length - 1]);
+            position = 0;
+        }
+        return position < page.length;
+    }
+
+    @Override
+    public ScoreDoc next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return page[position++];
+    }
+
+    private ScoreDoc[] fetch(ScoreDoc after) {
+        try {
+            return isearcher.searchAfter(after, query, pageSize).scoreDocs;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
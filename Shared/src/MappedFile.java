@@ -0,0 +1,84 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read-only file mapped into memory, used by Project Two's MappedPositionalIndex and Project Three's MappedIndex.
+ * A single mapping can only cover 2 GB, so bigger files get mapped in 1 GB segments. Both index formats keep every
+ * int and long aligned, so none of them ever straddle two segments.
+ */
+class MappedFile {
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Maps a whole file.
+     * @param file The file.
+     * @throws IOException If there's a problem mapping the file.
+     */
+    MappedFile(File file) throws IOException {
+        // The mappings stay valid after the file is closed.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1,
+                        size - start));
+            }
+        }
+    }
+
+    byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & SEGMENT_MASK));
+    }
+
+    long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Copies a UTF-8 string out of the file.
+     * @param position Where the string starts.
+     * @param length The string's length in bytes.
+     * @return The string.
+     */
+    String getString(long position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a string in the file against some bytes, without copying it out of the file first.
+     * @param position Where the string starts.
+     * @param length The string's length in bytes.
+     * @param other The bytes to compare against.
+     * @return Less than zero, zero, or greater than zero if the string in the file sorts before, the same as, or
+     * after the other bytes, comparing bytes as unsigned.
+     */
+    int compareString(long position, int length, byte[] other) {
+        int shared = Math.min(length, other.length);
+        for (int i = 0; i < shared; i++) {
+            int comparison = Integer.compare(get(position + i) & 0xff, other[i] & 0xff);
+            if (comparison != 0)
+                return comparison;
+        }
+        return Integer.compare(length, other.length);
+    }
+}
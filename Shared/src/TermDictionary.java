@@ -0,0 +1,394 @@
+// Author: Ryan Varnell, 2023
+// CSCI 4130 - Information Retrieval
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sorted list of every term in the index, used to find the terms closest to a misspelled query word.
+ * <p>
+ * Comparing a word against every term with an edit distance calculation gets slow as the vocabulary grows. Instead,
+ * we build a Levenshtein automaton for the word, which accepts every string within a set number of edits of it, and
+ * walk it along the sorted terms. Terms that share a prefix are next to each other, so the automaton's state for a
+ * shared prefix only has to be worked out once. As soon as a prefix can't be within the edit limit anymore, every term
+ * starting with it is skipped over with a search. Most of the dictionary is never looked at.
+ * <p>
+ * Lucene's spell checker assumes the first letter is right, which means only the terms starting with that letter have
+ * to be walked. We don't by default, since a typo in the first letter would never get fixed, but suggest can be told
+ * to.
+ * <p>
+ * The terms are packed one after another into a single char array rather than kept as Strings. With a million
+ * Strings spread around the heap, nearly every term we look at would be a cache miss.
+ * <p>
+ * Projects Two and Three both compile this file in from the Shared folder, so it can't use anything from either of
+ * them.
+ */
+class TermDictionary {
+    // Lucene uses these same cutoffs. Short words are within two edits of far too many other words.
+    private static final int ONE_EDIT_LENGTH = 3;
+    private static final int TWO_EDIT_LENGTH = 6;
+
+    // Term i is characters[offsets[i]] up to characters[offsets[i + 1]], in sorted order.
+    private final char[] characters;
+    private final int[] offsets;
+    private final int[] documentFrequencies;
+    private final int termCount;
+    private final int longestTerm;
+
+    /**
+     * Builds the dictionary.
+     * @param documentFrequencies Each term mapped to its document frequency.
+     */
+    TermDictionary(Map<String, Integer> documentFrequencies) {
+        String[] terms = documentFrequencies.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        termCount = terms.length;
+        this.documentFrequencies = new int[termCount];
+        offsets = new int[termCount + 1];
+
+        int length = 0;
+        int longest = 0;
+        for (int i = 0; i < termCount; i++) {
+            this.documentFrequencies[i] = documentFrequencies.get(terms[i]);
+            offsets[i] = length;
+            length += terms[i].length();
+            longest = Math.max(longest, terms[i].length());
+        }
+        offsets[termCount] = length;
+        longestTerm = longest;
+
+        characters = new char[length];
+        for (int i = 0; i < termCount; i++) {
+            terms[i].getChars(0, terms[i].length(), characters, offsets[i]);
+        }
+    }
+
+    /**
+     * Gets the number of terms in the dictionary.
+     * @return The number of terms.
+     */
+    int size() {
+        return termCount;
+    }
+
+    /**
+     * Checks if a term is in the dictionary.
+     * @param term The term.
+     * @return True if it is.
+     */
+    boolean contains(String term) {
+        char[] chars = term.toCharArray();
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, chars, chars.length);
+            if (comparison < 0)
+                low = middle + 1;
+            else if (comparison > 0)
+                high = middle - 1;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the most common term close to a word. This doesn't check whether the word is already in the dictionary, so
+     * check with contains first: a word that is could still be swapped for a more common one next to it.
+     * @param word The normalized word.
+     * @param maxEdits The most edits allowed, though short words are allowed fewer.
+     * @return The term with the highest document frequency, breaking ties by the fewest edits, or null if nothing is
+     * close enough.
+     */
+    String correct(String word, int maxEdits) {
+        List<Suggestion> suggestions = suggest(word, maxEdits);
+        return suggestions.isEmpty() ? null : suggestions.get(0).term;
+    }
+
+    /**
+     * Finds every term close to a word.
+     * @param word The normalized word.
+     * @param maxEdits The most edits allowed, though short words are allowed fewer.
+     * @return The terms, highest document frequency first, then fewest edits first.
+     */
+    List<Suggestion> suggest(String word, int maxEdits) {
+        return suggest(word, maxEdits, 0);
+    }
+
+    /**
+     * Finds every term close to a word that starts with the same letters.
+     * @param word The normalized word.
+     * @param maxEdits The most edits allowed, though short words are allowed fewer.
+     * @param prefixLength How many letters at the start of the word have to match exactly. 0 checks every term.
+     * @return The terms, highest document frequency first, then fewest edits first.
+     */
+    List<Suggestion> suggest(String word, int maxEdits, int prefixLength) {
+        if (word.length() < ONE_EDIT_LENGTH)
+            maxEdits = 0;
+        else if (word.length() < TWO_EDIT_LENGTH)
+            maxEdits = Math.min(maxEdits, 1);
+
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(word, maxEdits);
+        ArrayList<Suggestion> suggestions = new ArrayList<>();
+
+        // Only walk the terms that start the same way as the word. First find where they start: the first term that
+        // doesn't sort before the prefix. With no prefix, that's the first term, and the walk runs to the end.
+        char[] prefix = word.toCharArray();
+        prefixLength = Math.min(prefixLength, prefix.length);
+        int i = 0;
+        int high = termCount;
+        while (i < high) {
+            int middle = (i + high) >>> 1;
+            if (compare(middle, prefix, prefixLength) < 0)
+                i = middle + 1;
+            else
+                high = middle;
+        }
+        int end = skipPrefix(prefix, 0, prefixLength, i);
+
+        // states[d] is the automaton's state after reading the first d characters of the term at previous.
+        int[] states = new int[longestTerm + 1];
+        states[0] = automaton.start();
+        int previous = i;
+        int depth = 0;
+
+        while (i < end) {
+            int start = offsets[i];
+            int length = offsets[i + 1] - start;
+
+            // Pick up from the longest prefix this term shares with the last one we walked.
+            int d = 0;
+            int shared = Math.min(depth, length);
+            int previousStart = offsets[previous];
+            while (d < shared && characters[previousStart + d] == characters[start + d]) {
+                d++;
+            }
+
+            boolean dead = false;
+            while (d < length) {
+                int next = automaton.step(states[d], characters[start + d]);
+                if (next == LevenshteinAutomaton.DEAD) {
+                    dead = true;
+                    break;
+                }
+                states[++d] = next;
+            }
+            previous = i;
+            depth = d;
+
+            if (dead) {
+                // No term starting with the first d + 1 characters can match, so jump past all of them.
+                i = skipPrefix(characters, start, d + 1, i + 1);
+                continue;
+            }
+            if (automaton.isMatch(states[d]))
+                suggestions.add(new Suggestion(new String(characters, start, length), documentFrequencies[i],
+                        automaton.distance(states[d])));
+            i++;
+        }
+
+        // Anything within the edit limit is a plausible match, so rank them by how useful they'd be to search for
+        // rather than by how close they are. A rare term one edit away is usually another typo.
+        suggestions.sort((a, b) -> a.documentFrequency != b.documentFrequency
+                ? Integer.compare(b.documentFrequency, a.documentFrequency)
+                : a.edits != b.edits ? Integer.compare(a.edits, b.edits) : a.term.compareTo(b.term));
+        return suggestions;
+    }
+
+    /**
+     * Finds the first term at or after a position that doesn't start with a prefix. The terms starting with the
+     * prefix have to run on from just before the position.
+     * <p>
+     * Most runs are short, so rather than binary searching the rest of the dictionary, we take steps of 1, 2, 4, and
+     * so on until we overshoot the run, then binary search just that last step.
+     * @param source The array holding the prefix.
+     * @param sourceStart Where the prefix starts in the array.
+     * @param length The length of the prefix.
+     * @param from Where to start looking.
+     * @return The index of the first term without the prefix, or the number of terms if there isn't one.
+     */
+    private int skipPrefix(char[] source, int sourceStart, int length, int from) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < termCount && hasPrefix(high, source, sourceStart, length)) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, termCount);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (hasPrefix(middle, source, sourceStart, length))
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private boolean hasPrefix(int index, char[] source, int sourceStart, int length) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start < length)
+            return false;
+        for (int j = 0; j < length; j++) {
+            if (characters[start + j] != source[sourceStart + j])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares a term with the first characters of an array, the same way String.compareTo would.
+     * @param index The term's index.
+     * @param other The array.
+     * @param length How many characters of the array to compare against.
+     * @return Less than zero, zero, or greater than zero if the term sorts before, the same as, or after them.
+     */
+    private int compare(int index, char[] other, int length) {
+        int start = offsets[index];
+        int termLength = offsets[index + 1] - start;
+        int shared = Math.min(termLength, length);
+        for (int j = 0; j < shared; j++) {
+            if (characters[start + j] != other[j])
+                return characters[start + j] - other[j];
+        }
+        return termLength - length;
+    }
+
+    /**
+     * A term close to a misspelled word.
+     */
+    static class Suggestion {
+        final String term;
+        final int documentFrequency;
+        final int edits;
+
+        Suggestion(String term, int documentFrequency, int edits) {
+            this.term = term;
+            this.documentFrequency = documentFrequency;
+            this.edits = edits;
+        }
+
+        @Override
+        public String toString() {
+            return term + " (df " + documentFrequency + ", " + edits + " edit" + (edits == 1 ? "" : "s") + ")";
+        }
+    }
+
+    /**
+     * A deterministic automaton that accepts every string within a set number of edits (insertions, deletions, and
+     * substitutions) of a word.
+     * <p>
+     * Each state is one row of the usual edit distance table: how many edits it takes to turn the characters read so
+     * far into each prefix of the word, with anything over the limit counted as one over. States are only built the
+     * first time they're reached. Every character that isn't in the word moves the automaton the same way, so they
+     * all share one column of the transition table.
+     */
+    private static class LevenshteinAutomaton {
+        static final int DEAD = -1;
+        private static final int UNKNOWN = -2;
+
+        private final String word;
+        private final int maxEdits;
+
+        // The distinct characters in the word. Character class i + 1 is distinctCharacters[i], and class 0 is
+        // everything else.
+        private final char[] distinctCharacters;
+
+        private final ArrayList<int[]> rows = new ArrayList<>();
+        private final ArrayList<int[]> transitions = new ArrayList<>();
+        private final HashMap<String, Integer> stateIds = new HashMap<>();
+
+        LevenshteinAutomaton(String word, int maxEdits) {
+            this.word = word;
+            this.maxEdits = maxEdits;
+
+            StringBuilder distinct = new StringBuilder();
+            for (char c : word.toCharArray()) {
+                if (distinct.indexOf(String.valueOf(c)) < 0)
+                    distinct.append(c);
+            }
+            distinctCharacters = distinct.toString().toCharArray();
+
+            int[] start = new int[word.length() + 1];
+            for (int j = 0; j < start.length; j++) {
+                start[j] = Math.min(j, maxEdits + 1);
+            }
+            addState(start);
+        }
+
+        int start() {
+            return 0;
+        }
+
+        /**
+         * Moves from a state on a character.
+         * @return The next state, or DEAD if no string starting this way can be within the edit limit.
+         */
+        int step(int state, char c) {
+            int characterClass = 0;
+            for (int i = 0; i < distinctCharacters.length; i++) {
+                if (distinctCharacters[i] == c) {
+                    characterClass = i + 1;
+                    break;
+                }
+            }
+
+            int next = transitions.get(state)[characterClass];
+            if (next == UNKNOWN) {
+                next = buildTransition(rows.get(state), c);
+                transitions.get(state)[characterClass] = next;
+            }
+            return next;
+        }
+
+        boolean isMatch(int state) {
+            return rows.get(state)[word.length()] <= maxEdits;
+        }
+
+        int distance(int state) {
+            return rows.get(state)[word.length()];
+        }
+
+        /**
+         * Works out the next row of the edit distance table, and finds or adds its state.
+         */
+        private int buildTransition(int[] row, char c) {
+            int[] next = new int[row.length];
+            next[0] = Math.min(row[0] + 1, maxEdits + 1);
+            int smallest = next[0];
+            for (int j = 1; j < row.length; j++) {
+                int substitution = row[j - 1] + (word.charAt(j - 1) == c ? 0 : 1);
+                next[j] = Math.min(Math.min(next[j - 1] + 1, row[j] + 1), Math.min(substitution, maxEdits + 1));
+                smallest = Math.min(smallest, next[j]);
+            }
+            if (smallest > maxEdits)
+                return DEAD;
+
+            Integer id = stateIds.get(key(next));
+            return id != null ? id : addState(next);
+        }
+
+        private int addState(int[] row) {
+            int[] columns = new int[distinctCharacters.length + 1];
+            Arrays.fill(columns, UNKNOWN);
+            rows.add(row);
+            transitions.add(columns);
+            stateIds.put(key(row), rows.size() - 1);
+            return rows.size() - 1;
+        }
+
+        private static String key(int[] row) {
+            char[] chars = new char[row.length];
+            for (int j = 0; j < row.length; j++) {
+                chars[j] = (char) row[j];
+            }
+            return new String(chars);
+        }
+    }
+}